@@ -1,10 +1,51 @@
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
 
 public abstract class AbstractGraph<V> implements Graph<V> {
+    private static final int[] NO_NEIGHBORS = new int[0];
+    // Frontiers smaller than this are expanded on the calling thread by parallelBfs
+    private static final int PARALLEL_FRONTIER_THRESHOLD = 4096;
+    private static final int LABELS = EdgeLabel.COUNT;
+
     protected List<V> vertices = new ArrayList<>();
-    protected List<List<Edge>> neighbors = new ArrayList<>();
+    // Every index holding each vertex, sorted and kept in step with 'vertices', so getIndex is
+    // O(1) and removing the lowest of several equal vertices falls back to the next
+    protected Map<V, int[]> vertexIndex = new HashMap<>();
+    // neighbors[u][0 .. degrees[u]) holds the targets of u's edges; rows grow by doubling
+    protected int[][] neighbors = new int[16][];
+    protected int[] degrees = new int[16];
+    // Each row is grouped by EdgeLabel: labelEnds[u * LABELS + l] is where label l's slice of
+    // neighbors[u] ends, and the slice starts where label l - 1's ends (or at 0)
+    protected int[] labelEnds = new int[16 * LABELS];
+    // NodeKind ordinal of each vertex, so type checks in hot loops skip instanceof and reflection
+    protected byte[] kinds = new byte[16];
+    // Packed (u, v) -> position of v in neighbors[u], for O(1) lookup and removal
+    protected LongIntHashMap edgeIndex = new LongIntHashMap();
+    protected NameIndex nameIndex = new NameIndex();
+    // Removed vertices leave a null tombstone in 'vertices' so the indices of the others stay stable
+    protected int removedCount;
+    protected List<GraphListener> listeners = new ArrayList<>();
+    private final GraphTraversal.Rows rows = new GraphTraversal.Rows() {
+        public int degree(int u) {
+            return AbstractGraph.this.degrees[u];
+        }
+
+        public int neighbor(int u, int i) {
+            return AbstractGraph.this.neighbors[u][i];
+        }
+
+        public int labelEnd(int u, int label) {
+            return AbstractGraph.this.labelEnds[u * LABELS + label];
+        }
+    };
 
     protected AbstractGraph() {
     }
@@ -40,21 +81,39 @@ public abstract class AbstractGraph<V> implements Graph<V> {
     }
 
     private void createAdjacencyLists(int[][] edges, int numberOfVertices) {
+        int[] us = new int[edges.length];
+        int[] vs = new int[edges.length];
         for(int i = 0; i < edges.length; ++i) {
-            this.addEdge(edges[i][0], edges[i][1]);
+            us[i] = edges[i][0];
+            vs[i] = edges[i][1];
         }
+        this.addEdges(us, vs);
     }
 
     private void createAdjacencyLists(List<Edge> edges, int numberOfVertices) {
+        int[] us = new int[edges.size()];
+        int[] vs = new int[edges.size()];
+        int i = 0;
         for(Edge edge : edges) {
-            this.addEdge(edge.u, edge.v);
+            us[i] = edge.u;
+            vs[i] = edge.v;
+            ++i;
         }
+        this.addEdges(us, vs);
     }
 
     public int getSize() {
         return this.vertices.size();
     }
 
+    public int getVertexCount() {
+        return this.vertices.size() - this.removedCount;
+    }
+
+    public boolean hasVertex(int index) {
+        return index >= 0 && index < this.vertices.size() && this.vertices.get(index) != null;
+    }
+
     public List<V> getVertices() {
         return this.vertices;
     }
@@ -64,29 +123,96 @@ public abstract class AbstractGraph<V> implements Graph<V> {
     }
 
     public int getIndex(V v) {
-        return this.vertices.indexOf(v);
+        int[] indices = this.vertexIndex.get(v);
+        return indices == null ? -1 : indices[0];
+    }
+
+    public int findIndex(String name) {
+        return this.nameIndex.find(name);
+    }
+
+    public int findIndex(Class<? extends V> type, String name) {
+        return this.nameIndex.find(type, name);
     }
 
     public List<Integer> getNeighbors(int index) {
-        List<Integer> result = new ArrayList<>();
-        List<Edge> edgeList = this.neighbors.get(index);
-        for(Edge e : edgeList) {
-            result.add(e.v);
+        int[] adj = this.neighbors[index];
+        int degree = this.degrees[index];
+        List<Integer> result = new ArrayList<>(degree);
+        for(int i = 0; i < degree; ++i) {
+            result.add(adj[i]);
         }
         return result;
     }
 
+    /** Returns the i-th neighbor of v, for 0 <= i < getDegree(v). */
+    public int getNeighbor(int v, int i) {
+        if (i >= this.degrees[v]) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Degree: " + this.degrees[v]);
+        }
+        return this.neighbors[v][i];
+    }
+
+    public void forEachNeighbor(int v, IntConsumer action) {
+        int[] adj = this.neighbors[v];
+        for(int i = 0; i < this.degrees[v]; ++i) {
+            action.accept(adj[i]);
+        }
+    }
+
+    /**
+     * Copies the neighbors of v into {@code buffer} and returns the degree of v.
+     * Only the first buffer.length neighbors are copied if the buffer is too small.
+     */
+    public int neighborsInto(int v, int[] buffer) {
+        int degree = this.degrees[v];
+        System.arraycopy(this.neighbors[v], 0, buffer, 0, Math.min(degree, buffer.length));
+        return degree;
+    }
+
     public int getDegree(int v) {
-        return this.neighbors.get(v).size();
+        return this.degrees[v];
+    }
+
+    public NodeKind getKind(int v) {
+        return NodeKind.of(this.kinds[v]);
+    }
+
+    public int getDegree(int v, EdgeLabel label) {
+        int l = label.ordinal();
+        return this.labelEnds[v * LABELS + l] - this.labelStart(v, l);
+    }
+
+    /** Returns the i-th neighbor of v over a {@code label} edge, for 0 <= i < getDegree(v, label). */
+    public int getNeighbor(int v, EdgeLabel label, int i) {
+        int l = label.ordinal();
+        int start = this.labelStart(v, l);
+        if (i >= this.labelEnds[v * LABELS + l] - start) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Degree: " + this.getDegree(v, label));
+        }
+        return this.neighbors[v][start + i];
+    }
+
+    /** Returns the label of the edge from u to v, or null if there is none. */
+    public EdgeLabel getLabel(int u, int v) {
+        int pos = this.edgeIndex.get(edgeKey(u, v));
+        return pos < 0 ? null : EdgeLabel.of(this.labelAt(u, pos));
+    }
+
+    public boolean hasEdge(int u, int v) {
+        return this.edgeIndex.containsKey(edgeKey(u, v));
     }
 
     public void printEdges() {
-        for(int u = 0; u < this.neighbors.size(); ++u) {
+        for(int u = 0; u < this.getSize(); ++u) {
+            if (!this.hasVertex(u)) {
+                continue;
+            }
             System.out.print(this.getVertex(u) + " (" + u + "): ");
 
-            List<Edge> edgeList = this.neighbors.get(u);
-            for(Edge e : edgeList) {
-                System.out.print("(" + this.getVertex(e.u) + ", " + this.getVertex(e.v) + ") ");
+            int[] adj = this.neighbors[u];
+            for(int i = 0; i < this.degrees[u]; ++i) {
+                System.out.print("(" + this.getVertex(u) + ", " + this.getVertex(adj[i]) + ") ");
             }
             System.out.println();
         }
@@ -94,24 +220,76 @@ public abstract class AbstractGraph<V> implements Graph<V> {
 
     public void clear() {
         this.vertices.clear();
-        this.neighbors.clear();
+        this.neighbors = new int[16][];
+        this.degrees = new int[16];
+        this.labelEnds = new int[16 * LABELS];
+        this.kinds = new byte[16];
+        this.edgeIndex.clear();
+        this.vertexIndex.clear();
+        this.nameIndex.clear();
+        this.removedCount = 0;
+        for(GraphListener listener : this.listeners) {
+            listener.cleared();
+        }
     }
 
     public void addVertex(V vertex) {
+        int index = this.appendSlot(vertex);
+        this.indexVertex(vertex, index);
+        for(GraphListener listener : this.listeners) {
+            listener.vertexAdded(index);
+        }
+    }
+
+    /**
+     * Appends a slot that looks like one left by removeVertex, so a snapshot taken without
+     * compacting can be restored with the same indices. Listeners are not told; setRows
+     * notifies them once every row is in place.
+     */
+    void addRemovedVertex() {
+        this.appendSlot(null);
+        ++this.removedCount;
+    }
+
+    private int appendSlot(V vertex) {
+        int index = this.vertices.size();
+        if (index == this.neighbors.length) {
+            int capacity = index << 1;
+            this.neighbors = Arrays.copyOf(this.neighbors, capacity);
+            this.degrees = Arrays.copyOf(this.degrees, capacity);
+            this.labelEnds = Arrays.copyOf(this.labelEnds, capacity * LABELS);
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+        }
+
         this.vertices.add(vertex);
-        this.neighbors.add(new ArrayList<>());
+        this.neighbors[index] = NO_NEIGHBORS;
+        this.degrees[index] = 0;
+        Arrays.fill(this.labelEnds, index * LABELS, (index + 1) * LABELS, 0);
+        this.kinds[index] = (byte) NodeKind.of(vertex).ordinal();
+        return index;
+    }
+
+    public void addGraphListener(GraphListener listener) {
+        this.listeners.add(listener);
     }
 
+    public void removeGraphListener(GraphListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Adds the directed edge from e.u to e.v only. Listeners are told about undirected edges,
+     * so a half edge cannot be reported to them; rather than let them (and a write-ahead log)
+     * drift from the graph, this is refused while any listener is attached.
+     */
     protected boolean addEdge(Edge e) {
-        if (e.u >= 0 && e.u <= this.getSize() - 1) {
-            if (e.v >= 0 && e.v <= this.getSize() - 1) {
-                List<Edge> edgeList = this.neighbors.get(e.u);
-                if (!edgeList.contains(e)) {
-                    edgeList.add(e);
-                    return true;
-                } else {
-                    return false;
-                }
+        if (!this.listeners.isEmpty()) {
+            throw new IllegalStateException("Directed edges cannot be added while graph listeners are attached");
+        }
+        if (this.hasVertex(e.u)) {
+            if (this.hasVertex(e.v)) {
+                return this.addDirectedEdge(e.u, e.v,
+                        EdgeLabel.between(this.getKind(e.u), this.getKind(e.v)));
             } else {
                 throw new IllegalArgumentException("No such index: " + e.v);
             }
@@ -121,18 +299,170 @@ public abstract class AbstractGraph<V> implements Graph<V> {
     }
 
     public void addEdge(int u, int v) {
-        this.addEdge(new Edge(u, v));
+        if (!this.hasVertex(u)) {
+            throw new IllegalArgumentException("No such index: " + u);
+        }
+        if (!this.hasVertex(v)) {
+            throw new IllegalArgumentException("No such index: " + v);
+        }
+
+        this.addEdge(u, v, EdgeLabel.between(this.getKind(u), this.getKind(v)));
+    }
+
+    public void addEdge(int u, int v, EdgeLabel label) {
+        if (!this.hasVertex(u)) {
+            throw new IllegalArgumentException("No such index: " + u);
+        }
+        if (!this.hasVertex(v)) {
+            throw new IllegalArgumentException("No such index: " + v);
+        }
+
+        boolean added = this.addDirectedEdge(u, v, label);
         if (u != v) {
-            this.addEdge(new Edge(v, u));
+            added = this.addDirectedEdge(v, u, label) || added;
+        }
+        if (added) {
+            this.fireEdgeAdded(u, v);
+        }
+    }
+
+    /** Adds the edges (us[i], vs[i]), each labeled as {@link #addEdge(int, int)} would. */
+    public void addEdges(int[] us, int[] vs) {
+        this.addEdges(us, vs, null);
+    }
+
+    /**
+     * Adds the undirected edges (us[i], vs[i]) in bulk. Both directions are packed into longs,
+     * sorted and deduplicated in O(E log E), and then each row is grown once and laid out in
+     * one pass, rather than paying a lookup and a resize per edge. A null label infers each
+     * edge's label from its endpoints.
+     */
+    public void addEdges(int[] us, int[] vs, EdgeLabel label) {
+        if (us.length != vs.length) {
+            throw new IllegalArgumentException("Edge arrays differ in length: " + us.length + " and " + vs.length);
+        }
+
+        long[] keys = new long[us.length * 2];
+        int count = 0;
+        for(int i = 0; i < us.length; ++i) {
+            int u = us[i];
+            int v = vs[i];
+            if (!this.hasVertex(u)) {
+                throw new IllegalArgumentException("No such index: " + u);
+            }
+            if (!this.hasVertex(v)) {
+                throw new IllegalArgumentException("No such index: " + v);
+            }
+            keys[count++] = edgeKey(u, v);
+            if (u != v) {
+                keys[count++] = edgeKey(v, u);
+            }
         }
+        this.addPackedEdges(keys, count, label);
+    }
+
+    /**
+     * Adds the directed edges packed in keys[0 .. count), which must hold both directions of
+     * each edge and valid indices; the array is reordered and overwritten.
+     */
+    private void addPackedEdges(long[] keys, int count, EdgeLabel label) {
+        Arrays.sort(keys, 0, count);
+
+        // Listeners expect each edge on its own, with the graph as it was right after it,
+        // so with any attached the sorted, deduplicated edges go in one at a time
+        if (!this.listeners.isEmpty()) {
+            for(int i = 0; i < count; ++i) {
+                long key = keys[i];
+                int u = (int) (key >>> 32);
+                int v = (int) key;
+                if ((i == 0 || key != keys[i - 1]) && u <= v) {
+                    this.addEdge(u, v, label != null ? label : EdgeLabel.between(this.getKind(u), this.getKind(v)));
+                }
+            }
+            return;
+        }
+
+        // At most count new keys, so the index is grown once up front instead of doubling along the way
+        this.edgeIndex.ensureCapacity(this.edgeIndex.size() + count);
+        int[] labelCounts = new int[LABELS];
+        int i = 0;
+        while(i < count) {
+            // Squeeze u's run down to the edges it does not have yet
+            int u = (int) (keys[i] >>> 32);
+            int from = i;
+            int added = 0;
+            for(; i < count && (int) (keys[i] >>> 32) == u; ++i) {
+                long key = keys[i];
+                if ((i == from || key != keys[i - 1]) && !this.edgeIndex.containsKey(key)) {
+                    keys[from + added++] = key;
+                }
+            }
+            if (added > 0) {
+                this.insertRow(u, keys, from, added, label, labelCounts);
+            }
+        }
+    }
+
+    // Inserts the new neighbors packed in keys[from .. from + added) into u's label slices
+    private void insertRow(int u, long[] keys, int from, int added, EdgeLabel label, int[] labelCounts) {
+        Arrays.fill(labelCounts, 0);
+        for(int j = from; j < from + added; ++j) {
+            ++labelCounts[this.labelOf(u, (int) keys[j], label)];
+        }
+
+        int degree = this.degrees[u];
+        int[] adj = this.neighbors[u];
+        if (degree + added > adj.length) {
+            adj = Arrays.copyOf(adj, Math.max(4, degree + added));
+            this.neighbors[u] = adj;
+        }
+
+        // From the last slice down, move each slice right by the number of edges added to
+        // the slices before it, then write its own new edges into the gap after it
+        int base = u * LABELS;
+        int shift = added;
+        for(int l = LABELS - 1; l >= 0; --l) {
+            shift -= labelCounts[l];
+            int start = this.labelStart(u, l);
+            int end = this.labelEnds[base + l];
+            if (shift > 0 && end > start) {
+                System.arraycopy(adj, start, adj, start + shift, end - start);
+                for(int p = start + shift; p < end + shift; ++p) {
+                    this.edgeIndex.put(edgeKey(u, adj[p]), p);
+                }
+            }
+
+            int pos = end + shift;
+            if (labelCounts[l] > 0) {
+                for(int j = from; j < from + added; ++j) {
+                    int v = (int) keys[j];
+                    if (this.labelOf(u, v, label) == l) {
+                        adj[pos] = v;
+                        this.edgeIndex.put(keys[j], pos);
+                        ++pos;
+                    }
+                }
+            }
+            this.labelEnds[base + l] = pos;
+        }
+        this.degrees[u] = degree + added;
+    }
+
+    private int labelOf(int u, int v, EdgeLabel label) {
+        return label != null ? label.ordinal() : EdgeLabel.between(this.getKind(u), this.getKind(v)).ordinal();
     }
 
     public boolean removeEdge(int u, int v) {
         if (u >= 0 && u <= this.getSize() - 1) {
             if (v >= 0 && v <= this.getSize() - 1) {
-                boolean removed = this.neighbors.get(u).remove(new Edge(u, v));
+                boolean removed = this.removeDirectedEdge(u, v);
                 if (u != v) {
-                    removed = this.neighbors.get(v).remove(new Edge(v, u)) || removed;
+                    removed = this.removeDirectedEdge(v, u) || removed;
+                }
+                if (removed) {
+                    for(GraphListener listener : this.listeners) {
+                        listener.edgeRemoved(u, v);
+                    }
                 }
                 return removed;
             } else {
@@ -148,83 +478,476 @@ public abstract class AbstractGraph<V> implements Graph<V> {
         if (idx < 0) {
             return false;
         } else {
-            this.vertices.remove(idx);
-            this.neighbors.remove(idx);
-
-            for(List<Edge> adj : this.neighbors) {
-                adj.removeIf((ex) -> ex.v == idx);
-
-                for(Edge e : adj) {
-                    if (e.u > idx) {
-                        --e.u;
-                    }
-                    if (e.v > idx) {
-                        --e.v;
-                    }
+            // Drop the edges one at a time from the end of the row, so listeners see a
+            // consistent graph, with the vertex still present, after each removal
+            while(this.degrees[idx] > 0) {
+                int w = this.neighbors[idx][this.degrees[idx] - 1];
+                this.removeDirectedEdge(idx, w);
+                if (w != idx) {
+                    this.removeDirectedEdge(w, idx);
+                }
+                for(GraphListener listener : this.listeners) {
+                    listener.edgeRemoved(idx, w);
                 }
             }
+
+            this.vertices.set(idx, null);
+            this.neighbors[idx] = NO_NEIGHBORS;
+            this.kinds[idx] = (byte) NodeKind.OTHER.ordinal();
+            this.vertexIndex.computeIfPresent(vertex, (v, indices) -> NameIndex.withoutIndex(indices, idx));
+            this.nameIndex.remove(vertex, idx);
+            ++this.removedCount;
+            for(GraphListener listener : this.listeners) {
+                listener.vertexRemoved(idx);
+            }
             return true;
         }
     }
 
-    public AbstractGraph<V>.Tree dfs(int v) {
-        List<Integer> searchOrder = new ArrayList<>();
-        int[] parent = new int[this.vertices.size()];
+    /**
+     * Drops removed vertices and renumbers the live ones in their current order.
+     * This invalidates indices held by callers, so it only runs when called explicitly, never
+     * as a side effect of removeVertex; the returned array maps each old index to its new one,
+     * or -1 for a removed vertex.
+     */
+    public int[] compact() {
+        int size = this.getSize();
+        int[] remap = new int[size];
+        int next = 0;
+        for(int u = 0; u < size; ++u) {
+            remap[u] = this.vertices.get(u) != null ? next++ : -1;
+        }
+        if (next == size) {
+            return remap;
+        }
+
+        for(int u = 0; u < size; ++u) {
+            int target = remap[u];
+            if (target < 0) {
+                continue;
+            }
+
+            int[] adj = this.neighbors[u];
+            for(int i = 0; i < this.degrees[u]; ++i) {
+                adj[i] = remap[adj[i]];
+            }
+            this.vertices.set(target, this.vertices.get(u));
+            this.neighbors[target] = adj;
+            this.degrees[target] = this.degrees[u];
+            System.arraycopy(this.labelEnds, u * LABELS, this.labelEnds, target * LABELS, LABELS);
+            this.kinds[target] = this.kinds[u];
+        }
+        Arrays.fill(this.neighbors, next, size, null);
+        Arrays.fill(this.degrees, next, size, 0);
+        Arrays.fill(this.labelEnds, next * LABELS, size * LABELS, 0);
+
+        this.vertices.subList(next, size).clear();
+        this.removedCount = 0;
+        this.rebuildEdgeIndex();
+        this.rebuildVertexIndexes();
+        for(GraphListener listener : this.listeners) {
+            listener.compacted(remap);
+        }
+        return remap;
+    }
+
+    /**
+     * Replaces every row with the given CSR rows: row u is targets[offsets[u] .. offsets[u + 1])
+     * and label l's slice of it ends at labelEnds[u * LABELS + l], an absolute position in
+     * targets. Lets a snapshot be restored without inserting its edges one at a time.
+     * Listeners are sent compacted with an identity remap so they rebuild.
+     */
+    void setRows(ChunkedIntBuffer offsets, ChunkedIntBuffer targets, ChunkedIntBuffer labelEnds) {
+        int n = this.getSize();
+        for(int u = 0; u < n; ++u) {
+            int start = offsets.get(u);
+            int degree = offsets.get(u + 1) - start;
+            int[] adj = degree == 0 ? NO_NEIGHBORS : new int[degree];
+            targets.get(start, adj, 0, degree);
+            this.neighbors[u] = adj;
+            this.degrees[u] = degree;
+            for(int l = 0; l < LABELS; ++l) {
+                this.labelEnds[u * LABELS + l] = labelEnds.get(u * LABELS + l) - start;
+            }
+        }
+        this.rebuildEdgeIndex();
 
-        for(int i = 0; i < parent.length; ++i) {
-            parent[i] = -1;
+        int[] remap = new int[n];
+        for(int u = 0; u < n; ++u) {
+            remap[u] = u;
+        }
+        for(GraphListener listener : this.listeners) {
+            listener.compacted(remap);
+        }
+    }
+
+    private boolean addDirectedEdge(int u, int v, EdgeLabel label) {
+        long key = edgeKey(u, v);
+        if (this.edgeIndex.containsKey(key)) {
+            return false;
+        }
+
+        int degree = this.degrees[u];
+        int[] adj = this.neighbors[u];
+        if (degree == adj.length) {
+            adj = Arrays.copyOf(adj, Math.max(4, degree << 1));
+            this.neighbors[u] = adj;
+        }
+
+        // Open a slot at the end of the label's slice by moving the first neighbor of each
+        // later slice to that slice's end, so an insert costs O(labels) moves
+        int base = u * LABELS;
+        int l = label.ordinal();
+        int free = degree;
+        for(int k = LABELS - 1; k > l; --k) {
+            int start = this.labelEnds[base + k - 1];
+            if (start != free) {
+                int moved = adj[start];
+                adj[free] = moved;
+                this.edgeIndex.put(edgeKey(u, moved), free);
+            }
+            ++this.labelEnds[base + k];
+            free = start;
+        }
+
+        adj[free] = v;
+        ++this.labelEnds[base + l];
+        this.degrees[u] = degree + 1;
+        this.edgeIndex.put(key, free);
+        return true;
+    }
+
+    private boolean removeDirectedEdge(int u, int v) {
+        int pos = this.edgeIndex.remove(edgeKey(u, v));
+        if (pos < 0) {
+            return false;
+        }
+
+        // Fill the hole with the last neighbor of the same slice, then close the gap that
+        // leaves by moving the last neighbor of each later slice down one place
+        int base = u * LABELS;
+        int[] adj = this.neighbors[u];
+        int hole = pos;
+        for(int k = this.labelAt(u, pos); k < LABELS; ++k) {
+            int last = --this.labelEnds[base + k];
+            if (last != hole) {
+                int moved = adj[last];
+                adj[hole] = moved;
+                this.edgeIndex.put(edgeKey(u, moved), hole);
+            }
+            hole = last;
         }
+        --this.degrees[u];
+        return true;
+    }
+
+    private void fireEdgeAdded(int u, int v) {
+        for(GraphListener listener : this.listeners) {
+            listener.edgeAdded(u, v);
+        }
+    }
+
+    private int labelStart(int u, int label) {
+        return label == 0 ? 0 : this.labelEnds[u * LABELS + label - 1];
+    }
+
+    // Index of the label slice that position pos of u's row falls in
+    private int labelAt(int u, int pos) {
+        int base = u * LABELS;
+        int l = 0;
+        while(pos >= this.labelEnds[base + l]) {
+            ++l;
+        }
+        return l;
+    }
+
+    private void rebuildEdgeIndex() {
+        this.edgeIndex.clear();
+        for(int u = 0; u < this.getSize(); ++u) {
+            int[] adj = this.neighbors[u];
+            for(int i = 0; i < this.degrees[u]; ++i) {
+                this.edgeIndex.put(edgeKey(u, adj[i]), i);
+            }
+        }
+    }
+
+    private void rebuildVertexIndexes() {
+        this.vertexIndex.clear();
+        this.nameIndex.clear();
+        for(int i = 0; i < this.getSize(); ++i) {
+            V vertex = this.vertices.get(i);
+            if (vertex == null) {
+                continue;
+            }
+            this.indexVertex(vertex, i);
+        }
+    }
+
+    private void indexVertex(V vertex, int index) {
+        this.vertexIndex.compute(vertex, (v, indices) -> NameIndex.withIndex(indices, index));
+        this.nameIndex.add(vertex, index);
+    }
+
+    protected static long edgeKey(int u, int v) {
+        return ((long) u << 32) | (v & 0xFFFFFFFFL);
+    }
+
+    public AbstractGraph.Tree<V> dfs(int v) {
+        TraversalWorkspace workspace = TraversalWorkspace.get();
+        this.dfs(v, workspace);
+        return GraphTraversal.tree(v, this.vertices.size(), workspace, this);
+    }
+
+    public int dfs(int v, TraversalWorkspace workspace) {
+        return GraphTraversal.dfs(this.rows, this.vertices.size(), v, workspace);
+    }
+
+    public AbstractGraph.Tree<V> bfs(int v) {
+        return this.bfs(v, Integer.MAX_VALUE, null);
+    }
+
+    public AbstractGraph.Tree<V> bfs(int v, int maxDepth) {
+        return this.bfs(v, maxDepth, null);
+    }
+
+    /**
+     * BFS that stops expanding at {@code maxDepth} hops from v. If {@code filter} is not
+     * null, a vertex is only visited when the filter accepts it for the level it would get.
+     */
+    public AbstractGraph.Tree<V> bfs(int v, int maxDepth, LevelFilter filter) {
+        TraversalWorkspace workspace = TraversalWorkspace.get();
+        this.bfs(v, maxDepth, filter, workspace);
+        return GraphTraversal.tree(v, this.vertices.size(), workspace, this);
+    }
+
+    /**
+     * Allocation-free form of {@link #bfs(int, int, LevelFilter)}: the parents, levels and
+     * search order are left in {@code workspace}. Returns the number of vertices visited.
+     */
+    public int bfs(int v, int maxDepth, LevelFilter filter, TraversalWorkspace workspace) {
+        return GraphTraversal.bfs(this.rows, this.vertices.size(), v, maxDepth, GraphTraversal.ALL_RELATIONS,
+                filter, workspace);
+    }
 
-        boolean[] isVisited = new boolean[this.vertices.size()];
-        this.dfs(v, parent, searchOrder, isVisited);
-        return new Tree(v, parent, searchOrder);
+    /** BFS that only follows edges whose label is in {@code relations}. */
+    public AbstractGraph.Tree<V> bfs(int v, int maxDepth, Set<EdgeLabel> relations, LevelFilter filter) {
+        TraversalWorkspace workspace = TraversalWorkspace.get();
+        this.bfs(v, maxDepth, relations, filter, workspace);
+        return GraphTraversal.tree(v, this.vertices.size(), workspace, this);
     }
 
-    private void dfs(int u, int[] parent, List<Integer> searchOrder, boolean[] isVisited) {
-        searchOrder.add(u);
-        isVisited[u] = true;
+    public int bfs(int v, int maxDepth, Set<EdgeLabel> relations, LevelFilter filter, TraversalWorkspace workspace) {
+        return GraphTraversal.bfs(this.rows, this.vertices.size(), v, maxDepth, GraphTraversal.relationMask(relations),
+                filter, workspace);
+    }
+
+    /**
+     * Breadth-first search that switches between top-down and bottom-up steps
+     * (Beamer et al.). When the frontier's edges outnumber the unvisited vertices'
+     * edges by ALPHA, each unvisited vertex instead looks for any parent in a bitset
+     * of the frontier. Levels match {@link #bfs(int)}; parents and the order within a
+     * bottom-up level (ascending index) may differ.
+     */
+    public AbstractGraph.Tree<V> bfsDirectionOptimizing(int v) {
+        final int alpha = 14;
+        final int beta = 24;
+
+        int n = this.vertices.size();
+        int[] parent = new int[n];
+        int[] levels = new int[n];
+        Arrays.fill(parent, -1);
+        Arrays.fill(levels, -1);
+
+        long[] visited = new long[(n + 63) >>> 6];
+        long[] frontier = new long[visited.length];
+        // Vertices in discovery order; each level is the slice [levelStart, levelEnd)
+        int[] order = new int[n];
+        int count = 0;
 
-        List<Edge> edgeList = this.neighbors.get(u);
-        for(Edge e : edgeList) {
-            if (!isVisited[e.v]) {
-                parent[e.v] = u;
-                this.dfs(e.v, parent, searchOrder, isVisited);
+        long unvisitedEdges = 0;
+        for(int u = 0; u < n; ++u) {
+            unvisitedEdges += this.degrees[u];
+        }
+
+        order[count++] = v;
+        visited[v >>> 6] |= 1L << v;
+        levels[v] = 0;
+        unvisitedEdges -= this.degrees[v];
+
+        int levelStart = 0;
+        boolean bottomUp = false;
+        int level = 0;
+        while(levelStart < count) {
+            int levelEnd = count;
+            int frontierSize = levelEnd - levelStart;
+            long frontierEdges = 0;
+            for(int i = levelStart; i < levelEnd; ++i) {
+                frontierEdges += this.degrees[order[i]];
+            }
+
+            if (!bottomUp && frontierEdges > unvisitedEdges / alpha) {
+                bottomUp = true;
+            } else if (bottomUp && frontierSize < n / beta) {
+                bottomUp = false;
             }
+
+            if (bottomUp) {
+                for(int i = levelStart; i < levelEnd; ++i) {
+                    int u = order[i];
+                    frontier[u >>> 6] |= 1L << u;
+                }
+
+                for(int word = 0; word < visited.length; ++word) {
+                    long unvisited = ~visited[word];
+                    while(unvisited != 0) {
+                        int w = (word << 6) + Long.numberOfTrailingZeros(unvisited);
+                        unvisited &= unvisited - 1;
+                        if (w >= n) {
+                            break;
+                        }
+
+                        int[] adj = this.neighbors[w];
+                        for(int i = 0; i < this.degrees[w]; ++i) {
+                            int u = adj[i];
+                            if ((frontier[u >>> 6] & (1L << u)) != 0) {
+                                visited[word] |= 1L << w;
+                                parent[w] = u;
+                                levels[w] = level + 1;
+                                order[count++] = w;
+                                unvisitedEdges -= this.degrees[w];
+                                break;
+                            }
+                        }
+                    }
+                }
+
+                for(int i = levelStart; i < levelEnd; ++i) {
+                    int u = order[i];
+                    frontier[u >>> 6] &= ~(1L << u);
+                }
+            } else {
+                for(int i = levelStart; i < levelEnd; ++i) {
+                    int u = order[i];
+                    int[] adj = this.neighbors[u];
+                    for(int j = 0; j < this.degrees[u]; ++j) {
+                        int w = adj[j];
+                        if ((visited[w >>> 6] & (1L << w)) == 0) {
+                            visited[w >>> 6] |= 1L << w;
+                            parent[w] = u;
+                            levels[w] = level + 1;
+                            order[count++] = w;
+                            unvisitedEdges -= this.degrees[w];
+                        }
+                    }
+                }
+            }
+
+            levelStart = levelEnd;
+            ++level;
         }
+
+        List<Integer> searchOrder = new ArrayList<>(count);
+        for(int i = 0; i < count; ++i) {
+            searchOrder.add(order[i]);
+        }
+        return new Tree<>(v, parent, searchOrder, levels, this.vertices);
     }
 
-    public AbstractGraph<V>.Tree bfs(int v) {
-        List<Integer> searchOrder = new ArrayList<>();
-        int[] parent = new int[this.vertices.size()];
-        int[] levels = new int[this.vertices.size()];
+    public AbstractGraph.Tree<V> parallelBfs(int v) {
+        return this.parallelBfs(v, ForkJoinPool.commonPool());
+    }
 
-        for(int i = 0; i < parent.length; ++i) {
-            parent[i] = -1;
+    /**
+     * Level-synchronous BFS that expands each large frontier in parallel on {@code pool}.
+     * Workers claim a vertex by CAS on its parent slot and collect the next frontier in
+     * their own buffer; the buffers are appended in chunk order once the level is done.
+     * Levels match {@link #bfs(int)}; parents and the order within a level may differ.
+     */
+    public AbstractGraph.Tree<V> parallelBfs(int v, ForkJoinPool pool) {
+        int n = this.vertices.size();
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        int[] levels = new int[n];
+        for(int i = 0; i < n; ++i) {
+            parent.set(i, -1);
             levels[i] = -1;
         }
 
-        LinkedList<Integer> queue = new LinkedList<>();
-        boolean[] isVisited = new boolean[this.vertices.size()];
-        queue.offer(v);
-        isVisited[v] = true;
+        int[] order = new int[n];
+        int count = 0;
+        int chunks = pool.getParallelism() * 4;
+        IntList[] buffers = new IntList[chunks];
+        for(int c = 0; c < chunks; ++c) {
+            buffers[c] = new IntList();
+        }
+
+        // The root claims itself so no worker can take it; its parent is reset below
+        parent.set(v, v);
         levels[v] = 0;
+        order[count++] = v;
+
+        int levelStart = 0;
+        int level = 0;
+        while(levelStart < count) {
+            int levelEnd = count;
+            int nextLevel = level + 1;
+
+            if (levelEnd - levelStart < PARALLEL_FRONTIER_THRESHOLD) {
+                IntList next = buffers[0];
+                this.expandFrontier(order, levelStart, levelEnd, parent, levels, nextLevel, next);
+                next.copyTo(order, count);
+                count += next.size();
+                next.clear();
+            } else {
+                int chunkSize = (levelEnd - levelStart + chunks - 1) / chunks;
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+                for(int c = 0; c < chunks; ++c) {
+                    int from = levelStart + c * chunkSize;
+                    int to = Math.min(levelEnd, from + chunkSize);
+                    IntList next = buffers[c];
+                    if (from < to) {
+                        tasks.add(ForkJoinTask.adapt(() ->
+                                this.expandFrontier(order, from, to, parent, levels, nextLevel, next)));
+                    }
+                }
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
 
-        while(!queue.isEmpty()) {
-            int u = queue.poll();
-            searchOrder.add(u);
-
-            List<Edge> edgeList = this.neighbors.get(u);
-            for(Edge e : edgeList) {
-                if (!isVisited[e.v]) {
-                    queue.offer(e.v);
-                    parent[e.v] = u;
-                    levels[e.v] = levels[u] + 1;
-                    isVisited[e.v] = true;
+                for(int c = 0; c < chunks; ++c) {
+                    buffers[c].copyTo(order, count);
+                    count += buffers[c].size();
+                    buffers[c].clear();
                 }
             }
+
+            levelStart = levelEnd;
+            level = nextLevel;
+        }
+
+        parent.set(v, -1);
+        int[] parentArray = new int[n];
+        for(int i = 0; i < n; ++i) {
+            parentArray[i] = parent.get(i);
         }
 
-        return new Tree(v, parent, searchOrder, levels);
+        List<Integer> searchOrder = new ArrayList<>(count);
+        for(int i = 0; i < count; ++i) {
+            searchOrder.add(order[i]);
+        }
+        return new Tree<>(v, parentArray, searchOrder, levels, this.vertices);
+    }
+
+    private void expandFrontier(int[] frontier, int from, int to, AtomicIntegerArray parent,
+                                int[] levels, int nextLevel, IntList next) {
+        for(int i = from; i < to; ++i) {
+            int u = frontier[i];
+            int[] adj = this.neighbors[u];
+            for(int j = 0; j < this.degrees[u]; ++j) {
+                int w = adj[j];
+                if (parent.get(w) == -1 && parent.compareAndSet(w, -1, u)) {
+                    levels[w] = nextLevel;
+                    next.add(w);
+                }
+            }
+        }
     }
 
     public static class Edge {
@@ -249,39 +972,45 @@ public abstract class AbstractGraph<V> implements Graph<V> {
         }
     }
 
-    public class Tree {
+    /**
+     * Result of a traversal. Paths are resolved through {@code vertices}, the vertex list of
+     * the graph that was traversed, so any Graph implementation can build one.
+     */
+    public static class Tree<V> {
         private int root;
         private int[] parent;
         private List<Integer> searchOrder;
         private int[] levels;
+        private List<V> vertices;
 
-        public Tree(int root, int[] parent, List<Integer> searchOrder) {
+        public Tree(int root, int[] parent, List<Integer> searchOrder, List<V> vertices) {
             this.root = root;
             this.parent = parent;
             this.searchOrder = searchOrder;
             this.levels = new int[parent.length];
+            this.vertices = vertices;
             calculateLevels();
         }
 
-        public Tree(int root, int[] parent, List<Integer> searchOrder, int[] levels) {
+        public Tree(int root, int[] parent, List<Integer> searchOrder, int[] levels, List<V> vertices) {
             this.root = root;
             this.parent = parent;
             this.searchOrder = searchOrder;
             this.levels = levels;
+            this.vertices = vertices;
         }
 
+        // Single O(V) pass: a traversal lists every vertex after its parent
         private void calculateLevels() {
-            for (int i = 0; i < levels.length; i++) {
-                levels[i] = getLevel(i);
+            Arrays.fill(levels, -1);
+            levels[root] = 0;
+            for (int node : searchOrder) {
+                if (node != root && parent[node] != -1) {
+                    levels[node] = levels[parent[node]] + 1;
+                }
             }
         }
 
-        private int getLevel(int node) {
-            if (node == root) return 0;
-            if (parent[node] == -1) return -1;
-            return getLevel(parent[node]) + 1;
-        }
-
         public int getRoot() {
             return this.root;
         }
@@ -321,7 +1050,7 @@ public abstract class AbstractGraph<V> implements Graph<V> {
             ArrayList<V> path = new ArrayList<>();
 
             do {
-                path.add(AbstractGraph.this.vertices.get(index));
+                path.add(this.vertices.get(index));
                 index = this.parent[index];
             } while(index != -1);
 
@@ -330,8 +1059,8 @@ public abstract class AbstractGraph<V> implements Graph<V> {
 
         public void printPath(int index) {
             List<V> path = this.getPath(index);
-            System.out.print("A path from " + AbstractGraph.this.vertices.get(this.root) +
-                    " to " + AbstractGraph.this.vertices.get(index) + ": ");
+            System.out.print("A path from " + this.vertices.get(this.root) +
+                    " to " + this.vertices.get(index) + ": ");
 
             for(int i = path.size() - 1; i >= 0; --i) {
                 System.out.print(path.get(i) + " ");
@@ -340,13 +1069,13 @@ public abstract class AbstractGraph<V> implements Graph<V> {
         }
 
         public void printTree() {
-            System.out.println("Root is: " + AbstractGraph.this.vertices.get(this.root));
+            System.out.println("Root is: " + this.vertices.get(this.root));
             System.out.print("Edges: ");
 
             for(int i = 0; i < this.parent.length; ++i) {
                 if (this.parent[i] != -1) {
-                    System.out.print("(" + AbstractGraph.this.vertices.get(this.parent[i]) +
-                            ", " + AbstractGraph.this.vertices.get(i) + ") ");
+                    System.out.print("(" + this.vertices.get(this.parent[i]) +
+                            ", " + this.vertices.get(i) + ") ");
                 }
             }
             System.out.println();
@@ -10,11 +10,11 @@ import javafx.scene.paint.Color;
 
 public class BFSGraphView extends Pane {
     private Graph<? extends Displayable> graph;
-    private AbstractGraph<? extends Displayable>.Tree bfsTree;
+    private AbstractGraph.Tree<? extends Displayable> bfsTree;
     private int startUserId;
 
     @SuppressWarnings("unchecked")
-    public BFSGraphView(Graph<? extends Displayable> graph, AbstractGraph<? extends Displayable>.Tree bfsTree, int startUserId) {
+    public BFSGraphView(Graph<? extends Displayable> graph, AbstractGraph.Tree<? extends Displayable> bfsTree, int startUserId) {
         this.graph = graph;
         this.bfsTree = bfsTree;
         this.startUserId = startUserId;
@@ -57,28 +57,24 @@ public class BFSGraphView extends Pane {
         Set<Integer> layer3Set = new HashSet<>();
 
         for (int movieIdx : watchedMovies) {
-            for (int neighbor : graph.getNeighbors(movieIdx)) {
-                if (vertices.get(neighbor).getClass().getSimpleName().equals("Genre")) {
-                    layer3Set.add(neighbor);
-                }
+            for (int k = 0; k < graph.getDegree(movieIdx, EdgeLabel.IN_GENRE); k++) {
+                layer3Set.add(graph.getNeighbor(movieIdx, EdgeLabel.IN_GENRE, k));
             }
         }
 
         for (int userIdx : connectedUsers) {
-            for (int neighbor : graph.getNeighbors(userIdx)) {
-                if (vertices.get(neighbor).getClass().getSimpleName().equals("Movie")) {
-                    layer3Set.add(neighbor);
-                }
+            for (int k = 0; k < graph.getDegree(userIdx, EdgeLabel.WATCHED); k++) {
+                layer3Set.add(graph.getNeighbor(userIdx, EdgeLabel.WATCHED, k));
             }
         }
         connectedNodes.addAll(layer3Set);
 
         Set<Integer> layer4Set = new HashSet<>();
         for (int genreIdx : layer3Set) {
-            if (vertices.get(genreIdx).getClass().getSimpleName().equals("Genre")) {
-                for (int neighbor : graph.getNeighbors(genreIdx)) {
-                    if (vertices.get(neighbor).getClass().getSimpleName().equals("Movie") &&
-                            !watchedMovies.contains(neighbor)) {
+            if (graph.getKind(genreIdx) == NodeKind.GENRE) {
+                for (int k = 0; k < graph.getDegree(genreIdx, EdgeLabel.IN_GENRE); k++) {
+                    int neighbor = graph.getNeighbor(genreIdx, EdgeLabel.IN_GENRE, k);
+                    if (!watchedMovies.contains(neighbor)) {
                         layer4Set.add(neighbor);
                     }
                 }
@@ -111,18 +107,14 @@ public class BFSGraphView extends Pane {
         Set<Integer> layer3Set = new HashSet<>();
 
         for (int movieIdx : watchedMovies) {
-            for (int neighbor : graph.getNeighbors(movieIdx)) {
-                if (vertices.get(neighbor).getClass().getSimpleName().equals("Genre")) {
-                    layer3Set.add(neighbor);
-                }
+            for (int k = 0; k < graph.getDegree(movieIdx, EdgeLabel.IN_GENRE); k++) {
+                layer3Set.add(graph.getNeighbor(movieIdx, EdgeLabel.IN_GENRE, k));
             }
         }
 
         for (int userIdx : connectedUsers) {
-            for (int neighbor : graph.getNeighbors(userIdx)) {
-                if (vertices.get(neighbor).getClass().getSimpleName().equals("Movie")) {
-                    layer3Set.add(neighbor);
-                }
+            for (int k = 0; k < graph.getDegree(userIdx, EdgeLabel.WATCHED); k++) {
+                layer3Set.add(graph.getNeighbor(userIdx, EdgeLabel.WATCHED, k));
             }
         }
 
@@ -132,10 +124,10 @@ public class BFSGraphView extends Pane {
         Set<Integer> layer4Set = new HashSet<>();
 
         for (int genreIdx : layer3Set) {
-            if (vertices.get(genreIdx).getClass().getSimpleName().equals("Genre")) {
-                for (int neighbor : graph.getNeighbors(genreIdx)) {
-                    if (vertices.get(neighbor).getClass().getSimpleName().equals("Movie") &&
-                            !watchedMovies.contains(neighbor)) {
+            if (graph.getKind(genreIdx) == NodeKind.GENRE) {
+                for (int k = 0; k < graph.getDegree(genreIdx, EdgeLabel.IN_GENRE); k++) {
+                    int neighbor = graph.getNeighbor(genreIdx, EdgeLabel.IN_GENRE, k);
+                    if (!watchedMovies.contains(neighbor)) {
                         layer4Set.add(neighbor);
                     }
                 }
@@ -148,22 +140,19 @@ public class BFSGraphView extends Pane {
 
     private List<Integer> getWatchedMovies(int userId) {
         List<Integer> watchedMovies = new ArrayList<>();
-        List<? extends Displayable> vertices = graph.getVertices();
 
-        for (int neighbor : graph.getNeighbors(userId)) {
-            if (vertices.get(neighbor).getClass().getSimpleName().equals("Movie")) {
-                watchedMovies.add(neighbor);
-            }
+        for (int k = 0; k < graph.getDegree(userId, EdgeLabel.WATCHED); k++) {
+            watchedMovies.add(graph.getNeighbor(userId, EdgeLabel.WATCHED, k));
         }
         return watchedMovies;
     }
 
     private List<Integer> getConnectedUsers(int userId) {
         List<Integer> connectedUsers = new ArrayList<>();
-        List<? extends Displayable> vertices = graph.getVertices();
 
-        for (int neighbor : graph.getNeighbors(userId)) {
-            if (vertices.get(neighbor).getClass().getSimpleName().equals("User") && neighbor != userId) {
+        for (int k = 0; k < graph.getDegree(userId, EdgeLabel.KNOWS); k++) {
+            int neighbor = graph.getNeighbor(userId, EdgeLabel.KNOWS, k);
+            if (neighbor != userId) {
                 connectedUsers.add(neighbor);
             }
         }
@@ -205,11 +194,12 @@ public class BFSGraphView extends Pane {
         for(int i : bfsNodes) {
             if (!connectedNodes.contains(i)) continue;
 
-            List<Integer> neighbors = graph.getNeighbors(i);
+            int degree = graph.getDegree(i);
             int x1 = cx[i];
             int y1 = cy[i];
 
-            for(int v : neighbors) {
+            for(int k = 0; k < degree; k++) {
+                int v = graph.getNeighbor(i, k);
                 if (i < v && bfsNodes.contains(v) && connectedNodes.contains(v)) {
                     int x2 = cx[v];
                     int y2 = cy[v];
@@ -263,19 +253,19 @@ public class BFSGraphView extends Pane {
             int y = cy[i];
 
             Circle circle = new Circle(x, y, nodeRadius);
-            Displayable vertex = vertices.get(i);
+            NodeKind kind = graph.getKind(i);
 
             if (i == bfsTree.getRoot()) {
                 circle.setFill(Color.LIGHTGREEN);
                 circle.setStroke(Color.DARKGREEN);
-            } else if (vertex.getClass().getSimpleName().equals("User")) {
+            } else if (kind == NodeKind.USER) {
                 circle.setFill(Color.LIGHTBLUE);
                 circle.setStroke(Color.DARKBLUE);
-            } else if (vertex.getClass().getSimpleName().equals("Genre")) {
+            } else if (kind == NodeKind.GENRE) {
                 circle.setFill(Color.ORANGE);
                 circle.setStroke(Color.DARKORANGE);
                 circle.setRadius(nodeRadius + 3);
-            } else if (vertex.getClass().getSimpleName().equals("Movie")) {
+            } else if (kind == NodeKind.MOVIE) {
                 if (watchedMovies.contains(i)) {
                     circle.setFill(Color.LIGHTGRAY);
                     circle.setStroke(Color.GRAY);
@@ -292,15 +282,15 @@ public class BFSGraphView extends Pane {
             Text label = new Text(x - name.length() * 3, y - nodeRadius - 6, name);
             label.setFill(Color.BLACK);
             label.setStyle("-fx-font-weight: bold; -fx-font-size: 12px;");
-            if (vertex.getClass().getSimpleName().equals("Movie") && watchedMovies.contains(i)) {
+            if (kind == NodeKind.MOVIE && watchedMovies.contains(i)) {
                 label.setOpacity(0.6);
             }
             this.getChildren().add(label);
 
             String typeIndicator;
-            if (vertex.getClass().getSimpleName().equals("User")) {
+            if (kind == NodeKind.USER) {
                 typeIndicator = "U";
-            } else if (vertex.getClass().getSimpleName().equals("Genre")) {
+            } else if (kind == NodeKind.GENRE) {
                 typeIndicator = "G";
             } else {
                 typeIndicator = "M";
@@ -324,7 +314,7 @@ public class BFSGraphView extends Pane {
                 this.getChildren().add(orderLabel);
             }
 
-            if (vertex.getClass().getSimpleName().equals("Movie") && !watchedMovies.contains(i) && visibleSearchOrder.contains(i)) {
+            if (kind == NodeKind.MOVIE && !watchedMovies.contains(i) && visibleSearchOrder.contains(i)) {
                 Circle recCircle = new Circle(x - nodeRadius + 5, y - nodeRadius + 5, 6);
                 recCircle.setFill(Color.GOLD);
                 recCircle.setStroke(Color.ORANGE);
@@ -448,9 +438,8 @@ public class BFSGraphView extends Pane {
         for (int vertexIndex : searchOrder) {
             if (!connectedNodes.contains(vertexIndex)) continue;
 
-            Displayable node = graph.getVertex(vertexIndex);
-            if (node instanceof Movie && !watchedMovies.contains(vertexIndex)) {
-                recommended.add((Movie) node);
+            if (graph.getKind(vertexIndex) == NodeKind.MOVIE && !watchedMovies.contains(vertexIndex)) {
+                recommended.add((Movie) graph.getVertex(vertexIndex));
             }
         }
 
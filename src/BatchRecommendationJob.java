@@ -0,0 +1,108 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless batch job that writes the top K recommendations of every user to a TSV file.
+ * Usage: java BatchRecommendationJob [output] [k] [threads] [csv directory]
+ * <p>
+ * Workers claim chunks of users from a shared counter, so a few well-connected users do not
+ * leave the other threads idle. Each worker has its own {@link Recommender}; the graph is
+ * only read. A chunk is formatted locally and appended to the file in one locked write.
+ */
+public class BatchRecommendationJob {
+    private static final int CHUNK_SIZE = 256;
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        Path output = Paths.get(args.length > 0 ? args[0] : "recommendations.tsv");
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Graph<Node> graph = new UnweightedGraph<>();
+        if (args.length > 3) {
+            CsvGraphLoader.load(graph, Paths.get(args[3]));
+        } else {
+            DataLoader.loadDefaultData(graph);
+        }
+        run(graph, output, k, threads);
+    }
+
+    /** Writes recommendations for all users of graph to output and returns the number of users. */
+    public static int run(Graph<Node> graph, Path output, int k, int threads)
+            throws IOException, InterruptedException, ExecutionException {
+        IntList userList = new IntList();
+        for (int i = 0; i < graph.getSize(); i++) {
+            if (graph.hasVertex(i) && graph.getKind(i) == NodeKind.USER) {
+                userList.add(i);
+            }
+        }
+        int[] users = userList.toArray();
+
+        long start = System.nanoTime();
+        AtomicInteger nextChunk = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write("user\trank\tmovie\tscore\n");
+
+            List<Callable<Integer>> workers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                workers.add(() -> runWorker(graph, users, k, nextChunk, writer));
+            }
+
+            int recommendations = 0;
+            for (Future<Integer> worker : pool.invokeAll(workers)) {
+                recommendations += worker.get();
+            }
+
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("Wrote %d recommendations for %d users to %s in %.2f s (%.0f users/sec, %d threads)%n",
+                    recommendations, users.length, output, seconds, users.length / seconds, threads);
+        } finally {
+            pool.shutdown();
+        }
+        return users.length;
+    }
+
+    private static int runWorker(Graph<Node> graph, int[] users, int k, AtomicInteger nextChunk, Writer writer)
+            throws IOException {
+        Recommender recommender = new Recommender(graph);
+        int[] movies = new int[Math.min(k, graph.getSize())];
+        StringBuilder lines = new StringBuilder();
+        int written = 0;
+
+        int chunk;
+        while ((chunk = nextChunk.getAndIncrement() * CHUNK_SIZE) < users.length) {
+            lines.setLength(0);
+            int end = Math.min(chunk + CHUNK_SIZE, users.length);
+            for (int i = chunk; i < end; i++) {
+                int user = users[i];
+                int count = recommender.recommend(user, k, movies);
+                String userName = graph.getVertex(user).getName();
+                for (int rank = 0; rank < count; rank++) {
+                    lines.append(userName).append('\t')
+                            .append(rank + 1).append('\t')
+                            .append(graph.getVertex(movies[rank]).getName()).append('\t')
+                            .append(recommender.getScore(movies[rank])).append('\n');
+                }
+                written += count;
+            }
+
+            synchronized (writer) {
+                writer.append(lines);
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark of the BFS variants on a synthetic graph.
+ * Usage: java BfsBenchmark [vertices] [averageDegree] [runs] [maxWorkers] [random|movies]
+ * Prints the median time of each variant and of parallelBfs for pool sizes 1, 2, 4, ...
+ * up to maxWorkers (default: the processor count), with the speedup over one worker.
+ * Speedups only mean something for pool sizes up to the number of cores actually available;
+ * no scaling numbers are recorded here, so run it on the target host to get them.
+ * <p>
+ * "random" (the default) joins uniformly random pairs; "movies" is shaped like the movie
+ * graph: users watch movies whose popularity is heavily skewed, and know a few other users.
+ * Each variant is warmed up for WARMUP_MILLIS and at least WARMUP_RUNS traversals before it
+ * is timed; on small graphs a shorter warm-up times code the JIT has not compiled yet.
+ */
+public class BfsBenchmark {
+    private static final int WARMUP_RUNS = 10;
+    private static final long WARMUP_MILLIS = 2000;
+    // Users per movie in the "movies" shape, and friendships per user
+    private static final int USERS_PER_MOVIE = 10;
+    private static final int FRIENDS_PER_USER = 2;
+
+    public static void main(String[] args) {
+        int vertices = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int averageDegree = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+        int processors = Runtime.getRuntime().availableProcessors();
+        int maxWorkers = args.length > 3 ? Integer.parseInt(args[3]) : processors;
+        boolean movies = args.length > 4 && args[4].equals("movies");
+        if (maxWorkers > processors) {
+            System.out.println("Note: only " + processors + " processors are available, so pools above that"
+                    + " size show scheduling overhead rather than speedup");
+        }
+
+        System.out.println("Building " + (movies ? "movie-shaped" : "random") + " graph: " + vertices
+                + " vertices, average degree " + averageDegree);
+        UnweightedGraph<Integer> graph = movies ? buildMovieGraph(vertices, averageDegree, 42L)
+                : buildRandomGraph(vertices, averageDegree, 42L);
+        int[] roots = new Random(7L).ints(runs, 0, vertices).toArray();
+
+        double topDown = medianMillis(roots, (root) -> graph.bfs(root));
+        double directionOptimizing = medianMillis(roots, (root) -> graph.bfsDirectionOptimizing(root));
+        System.out.printf("%-28s %10.2f ms%n", "bfs (top-down)", topDown);
+        System.out.printf("%-28s %10.2f ms  (%.2fx)%n", "bfsDirectionOptimizing", directionOptimizing,
+                topDown / directionOptimizing);
+
+        double single = 0;
+        for (int parallelism = 1; parallelism <= maxWorkers; parallelism = nextPoolSize(parallelism, maxWorkers)) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                double millis = medianMillis(roots, (root) -> graph.parallelBfs(root, pool));
+                if (parallelism == 1) {
+                    single = millis;
+                }
+                System.out.printf("%-28s %10.2f ms  (%.2fx vs 1 worker, %.2fx vs bfs)%n",
+                        "parallelBfs, " + parallelism + " workers", millis, single / millis, topDown / millis);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // Doubles the pool size, finishing on exactly maxWorkers
+    private static int nextPoolSize(int parallelism, int maxWorkers) {
+        if (parallelism == maxWorkers) {
+            return maxWorkers + 1;
+        }
+        return Math.min(parallelism << 1, maxWorkers);
+    }
+
+    private interface Traversal {
+        void run(int root);
+    }
+
+    private static double medianMillis(int[] roots, Traversal traversal) {
+        // Warm up the JIT before measuring
+        long warmupEnd = System.nanoTime() + WARMUP_MILLIS * 1_000_000;
+        for (int i = 0; i < WARMUP_RUNS || System.nanoTime() < warmupEnd; i++) {
+            traversal.run(roots[i % roots.length]);
+        }
+
+        double[] millis = new double[roots.length];
+        for (int i = 0; i < roots.length; i++) {
+            long start = System.nanoTime();
+            traversal.run(roots[i]);
+            millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(millis);
+        return millis[millis.length / 2];
+    }
+
+    private static UnweightedGraph<Integer> buildRandomGraph(int vertices, int averageDegree, long seed) {
+        GraphBuilder<Integer> builder = new GraphBuilder<>();
+        for (int i = 0; i < vertices; i++) {
+            builder.addVertex(i);
+        }
+
+        Random random = new Random(seed);
+        long edges = (long) vertices * averageDegree / 2;
+        for (long e = 0; e < edges; e++) {
+            builder.addEdge(random.nextInt(vertices), random.nextInt(vertices));
+        }
+        return builder.build();
+    }
+
+    // Movies first, then users. A user watches averageDegree / 2 movies on average, so the
+    // graph's average degree comes out close to averageDegree; movie m is picked with
+    // probability falling off as a power of m, so a few movies are watched by most users
+    private static UnweightedGraph<Integer> buildMovieGraph(int vertices, int averageDegree, long seed) {
+        GraphBuilder<Integer> builder = new GraphBuilder<>();
+        for (int i = 0; i < vertices; i++) {
+            builder.addVertex(i);
+        }
+
+        Random random = new Random(seed);
+        int movies = Math.max(1, vertices / (USERS_PER_MOVIE + 1));
+        int users = vertices - movies;
+        double watchesPerUser = Math.max(1, averageDegree / 2.0 - FRIENDS_PER_USER);
+        for (int u = movies; u < vertices; u++) {
+            int watches = 1 + (int) (-watchesPerUser * Math.log(1 - random.nextDouble()));
+            for (int w = 0; w < watches; w++) {
+                builder.addEdge(u, (int) (movies * Math.pow(random.nextDouble(), 3)));
+            }
+            for (int f = 0; f < FRIENDS_PER_USER; f++) {
+                builder.addEdge(u, movies + random.nextInt(users));
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,57 @@
+import java.nio.IntBuffer;
+
+/**
+ * Read-only sequence of ints split over several IntBuffers of CHUNK ints each, so a
+ * memory-mapped section is not limited to the 2 GB a single mapping can cover. Indices are
+ * ints, which still allows sections of up to 8 GB.
+ */
+public class ChunkedIntBuffer {
+    static final int CHUNK_BITS = 28;
+    static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK - 1;
+
+    private final IntBuffer[] chunks;
+    private final int limit;
+
+    /** Every chunk but the last must hold exactly CHUNK ints. */
+    ChunkedIntBuffer(IntBuffer[] chunks, int limit) {
+        this.chunks = chunks;
+        this.limit = limit;
+    }
+
+    public static ChunkedIntBuffer wrap(int[] values) {
+        if (values.length <= CHUNK) {
+            return new ChunkedIntBuffer(new IntBuffer[] {IntBuffer.wrap(values)}, values.length);
+        }
+        IntBuffer[] chunks = new IntBuffer[(int) (((long) values.length + CHUNK - 1) >>> CHUNK_BITS)];
+        for (int c = 0; c < chunks.length; c++) {
+            int from = c << CHUNK_BITS;
+            chunks[c] = IntBuffer.wrap(values, from, Math.min(CHUNK, values.length - from)).slice();
+        }
+        return new ChunkedIntBuffer(chunks, values.length);
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    // The chunk array and the last chunk's own limit do the bounds checking
+    public int get(int index) {
+        return chunks[index >>> CHUNK_BITS].get(index & CHUNK_MASK);
+    }
+
+    /** Copies length ints starting at index into dest, as IntBuffer's absolute bulk get does. */
+    public void get(int index, int[] dest, int offset, int length) {
+        if (index < 0 || length < 0 || index > limit - length) {
+            throw new IndexOutOfBoundsException("Range: " + index + " + " + length + ", Limit: " + limit);
+        }
+        while (length > 0) {
+            int within = index & CHUNK_MASK;
+            int count = Math.min(length, CHUNK - within);
+            chunks[index >>> CHUNK_BITS].get(within, dest, offset, count);
+            index += count;
+            offset += count;
+            length -= count;
+        }
+    }
+}
@@ -1,13 +1,21 @@
 import java.util.Scanner;
 
 public class ConsoleMenu {
-    private final Graph<Node> graph;
+    private static final int RECOMMENDATION_CACHE_SIZE = 256;
+
+    private final VersionedGraph<Node> graph;
     private final Main app;
     private final Scanner sc = new Scanner(System.in);
+    private final RecommendationCache recommendationCache;
+    private final ItemSimilarityIndex similarityIndex;
+    private final SimilarUserIndex similarUserIndex;
 
-    public ConsoleMenu(Graph<Node> graph, Main app) {
+    public ConsoleMenu(VersionedGraph<Node> graph, Main app) {
         this.graph = graph;
         this.app = app;
+        this.recommendationCache = new RecommendationCache(graph, RECOMMENDATION_CACHE_SIZE);
+        this.similarityIndex = new ItemSimilarityIndex(graph);
+        this.similarUserIndex = new SimilarUserIndex(graph);
     }
 
     public void mainMenu() {
@@ -29,17 +37,21 @@ public class ConsoleMenu {
             sc.nextLine();
 
             switch (opt) {
-                case 1 -> new GraphManager(graph, sc).createGraph();
-                case 2 -> new GraphManager(graph, sc).handleSearchMovie();
-                case 3 -> new VisualizationManager(graph, app).showGraphVisualization();
-                case 4 -> new RecommendationHandler(graph, app, sc).handleRecommendations();
+                case 1 -> new GraphManager(graph, sc, similarityIndex).createGraph();
+                case 2 -> new GraphManager(graph, sc, similarityIndex).handleSearchMovie();
+                // Readers get the current version, which later edits leave untouched
+                case 3 -> new VisualizationManager(graph.snapshot(), app).showGraphVisualization();
+                case 4 -> new RecommendationHandler(graph.snapshot(), app, sc, recommendationCache, similarUserIndex)
+                        .handleRecommendations();
                 case 5 -> {
+                    app.saveSnapshot();
                     System.out.println("Thank you for using our system!");
                     javafx.application.Platform.exit();
                     System.exit(0);
                 }
                 default -> System.out.println("Invalid option");
             }
+            app.checkpointIfDue();
         }
     }
 }
@@ -0,0 +1,330 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable compressed sparse row snapshot of an {@link AbstractGraph}.
+ * The neighbors of vertex u are targets[offsets[u] .. offsets[u + 1]), grouped by
+ * {@link EdgeLabel} with each label's slice ending at labelEnds[u * EdgeLabel.COUNT + label].
+ * The mutable graph stays the write path; take a new snapshot after editing it.
+ */
+public class CsrGraph<V> implements Graph<V> {
+    private final List<V> vertices;
+    // Buffers rather than arrays so a snapshot can be read straight from a mapped file
+    private final ChunkedIntBuffer offsets;
+    private final ChunkedIntBuffer targets;
+    private final ChunkedIntBuffer labelEnds;
+    private final byte[] kinds;
+    // Built on the first lookup, so a mapped snapshot decodes no vertex until one is read
+    private volatile Map<V, Integer> vertexIndex;
+    private volatile NameIndex nameIndex;
+    private final int vertexCount;
+    // Row positions are relative to offsets[u], as the traversals expect
+    private final GraphTraversal.Rows rows = new GraphTraversal.Rows() {
+        public int degree(int u) {
+            return CsrGraph.this.getDegree(u);
+        }
+
+        public int neighbor(int u, int i) {
+            return CsrGraph.this.targets.get(CsrGraph.this.offsets.get(u) + i);
+        }
+
+        public int labelEnd(int u, int label) {
+            return CsrGraph.this.labelEnds.get(u * EdgeLabel.COUNT + label) - CsrGraph.this.offsets.get(u);
+        }
+    };
+
+    public CsrGraph(AbstractGraph<V> graph) {
+        int n = graph.getSize();
+        int[] offsets = new int[n + 1];
+        for(int u = 0; u < n; ++u) {
+            offsets[u + 1] = offsets[u] + graph.degrees[u];
+        }
+
+        int[] targets = new int[offsets[n]];
+        int[] labelEnds = new int[n * EdgeLabel.COUNT];
+        for(int u = 0; u < n; ++u) {
+            System.arraycopy(graph.neighbors[u], 0, targets, offsets[u], graph.degrees[u]);
+            for(int l = 0; l < EdgeLabel.COUNT; ++l) {
+                int slot = u * EdgeLabel.COUNT + l;
+                labelEnds[slot] = offsets[u] + graph.labelEnds[slot];
+            }
+        }
+
+        this.vertices = Collections.unmodifiableList(new ArrayList<>(graph.getVertices()));
+        this.offsets = ChunkedIntBuffer.wrap(offsets);
+        this.targets = ChunkedIntBuffer.wrap(targets);
+        this.labelEnds = ChunkedIntBuffer.wrap(labelEnds);
+        this.kinds = Arrays.copyOf(graph.kinds, n);
+        this.vertexCount = graph.getVertexCount();
+    }
+
+    /**
+     * Wraps existing CSR arrays without copying them. labelEnds holds absolute positions in
+     * targets, and removed vertices are null entries of vertices, vertexCount of which are not.
+     * vertices is only read as needed, so it may decode each vertex on first access.
+     */
+    CsrGraph(List<V> vertices, int vertexCount, ChunkedIntBuffer offsets, ChunkedIntBuffer targets,
+             ChunkedIntBuffer labelEnds, byte[] kinds) {
+        this.vertices = Collections.unmodifiableList(vertices);
+        this.vertexCount = vertexCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.labelEnds = labelEnds;
+        this.kinds = kinds;
+    }
+
+    private Map<V, Integer> vertexIndex() {
+        Map<V, Integer> index = this.vertexIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = this.vertexIndex;
+                if (index == null) {
+                    index = new HashMap<>();
+                    for(int u = 0; u < this.vertices.size(); ++u) {
+                        V vertex = this.vertices.get(u);
+                        if (vertex != null) {
+                            index.putIfAbsent(vertex, u);
+                        }
+                    }
+                    this.vertexIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private NameIndex nameIndex() {
+        NameIndex index = this.nameIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = this.nameIndex;
+                if (index == null) {
+                    index = new NameIndex();
+                    for(int u = 0; u < this.vertices.size(); ++u) {
+                        index.add(this.vertices.get(u), u);
+                    }
+                    this.nameIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    public int getSize() {
+        return this.vertices.size();
+    }
+
+    public int getVertexCount() {
+        return this.vertexCount;
+    }
+
+    public boolean hasVertex(int index) {
+        return index >= 0 && index < this.vertices.size() && this.vertices.get(index) != null;
+    }
+
+    public int getEdgeCount() {
+        return this.targets.limit();
+    }
+
+    public List<V> getVertices() {
+        return this.vertices;
+    }
+
+    public V getVertex(int index) {
+        return this.vertices.get(index);
+    }
+
+    public int getIndex(V v) {
+        Integer index = this.vertexIndex().get(v);
+        return index == null ? -1 : index;
+    }
+
+    public int findIndex(String name) {
+        return this.nameIndex().find(name);
+    }
+
+    public int findIndex(Class<? extends V> type, String name) {
+        return this.nameIndex().find(type, name);
+    }
+
+    public List<Integer> getNeighbors(int index) {
+        final int start = this.offsets.get(index);
+        final int size = this.offsets.get(index + 1) - start;
+        return new AbstractList<Integer>() {
+            public Integer get(int i) {
+                if (i < 0 || i >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+                }
+                return CsrGraph.this.targets.get(start + i);
+            }
+
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public int getNeighbor(int v, int i) {
+        if (i >= this.getDegree(v)) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Degree: " + this.getDegree(v));
+        }
+        return this.targets.get(this.offsets.get(v) + i);
+    }
+
+    public void forEachNeighbor(int v, IntConsumer action) {
+        for(int i = this.offsets.get(v); i < this.offsets.get(v + 1); ++i) {
+            action.accept(this.targets.get(i));
+        }
+    }
+
+    public int neighborsInto(int v, int[] buffer) {
+        int degree = this.getDegree(v);
+        this.targets.get(this.offsets.get(v), buffer, 0, Math.min(degree, buffer.length));
+        return degree;
+    }
+
+    public int getDegree(int v) {
+        return this.offsets.get(v + 1) - this.offsets.get(v);
+    }
+
+    public NodeKind getKind(int v) {
+        return NodeKind.of(this.kinds[v]);
+    }
+
+    public int getDegree(int v, EdgeLabel label) {
+        int l = label.ordinal();
+        return this.labelEnds.get(v * EdgeLabel.COUNT + l) - this.labelStart(v, l);
+    }
+
+    public int getNeighbor(int v, EdgeLabel label, int i) {
+        if (i >= this.getDegree(v, label)) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Degree: " + this.getDegree(v, label));
+        }
+        return this.targets.get(this.labelStart(v, label.ordinal()) + i);
+    }
+
+    public EdgeLabel getLabel(int u, int v) {
+        int l = 0;
+        for(int i = this.offsets.get(u); i < this.offsets.get(u + 1); ++i) {
+            while(i >= this.labelEnds.get(u * EdgeLabel.COUNT + l)) {
+                ++l;
+            }
+            if (this.targets.get(i) == v) {
+                return EdgeLabel.of(l);
+            }
+        }
+        return null;
+    }
+
+    private int labelStart(int u, int label) {
+        return label == 0 ? this.offsets.get(u) : this.labelEnds.get(u * EdgeLabel.COUNT + label - 1);
+    }
+
+    public boolean hasEdge(int u, int v) {
+        for(int i = this.offsets.get(u); i < this.offsets.get(u + 1); ++i) {
+            if (this.targets.get(i) == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void printEdges() {
+        for(int u = 0; u < this.getSize(); ++u) {
+            if (!this.hasVertex(u)) {
+                continue;
+            }
+            System.out.print(this.getVertex(u) + " (" + u + "): ");
+
+            for(int i = this.offsets.get(u); i < this.offsets.get(u + 1); ++i) {
+                System.out.print("(" + this.getVertex(u) + ", " + this.getVertex(this.targets.get(i)) + ") ");
+            }
+            System.out.println();
+        }
+    }
+
+    public void clear() {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    public void addVertex(V vertex) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    public void addEdge(int u, int v) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    public void addEdge(int u, int v, EdgeLabel label) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    public void addEdges(int[] us, int[] vs) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    public void addEdges(int[] us, int[] vs, EdgeLabel label) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    public boolean removeEdge(int u, int v) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    public boolean removeVertex(V vertex) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    // A snapshot never changes, so there is nothing to report
+    public void addGraphListener(GraphListener listener) {
+    }
+
+    public void removeGraphListener(GraphListener listener) {
+    }
+
+    public AbstractGraph.Tree<V> dfs(int v) {
+        TraversalWorkspace workspace = TraversalWorkspace.get();
+        this.dfs(v, workspace);
+        return GraphTraversal.tree(v, this.getSize(), workspace, this);
+    }
+
+    public int dfs(int v, TraversalWorkspace workspace) {
+        return GraphTraversal.dfs(this.rows, this.getSize(), v, workspace);
+    }
+
+    public AbstractGraph.Tree<V> bfs(int v) {
+        return this.bfs(v, Integer.MAX_VALUE, null);
+    }
+
+    public AbstractGraph.Tree<V> bfs(int v, int maxDepth) {
+        return this.bfs(v, maxDepth, null);
+    }
+
+    public AbstractGraph.Tree<V> bfs(int v, int maxDepth, LevelFilter filter) {
+        TraversalWorkspace workspace = TraversalWorkspace.get();
+        this.bfs(v, maxDepth, filter, workspace);
+        return GraphTraversal.tree(v, this.getSize(), workspace, this);
+    }
+
+    public int bfs(int v, int maxDepth, LevelFilter filter, TraversalWorkspace workspace) {
+        return GraphTraversal.bfs(this.rows, this.getSize(), v, maxDepth, GraphTraversal.ALL_RELATIONS, filter, workspace);
+    }
+
+    public AbstractGraph.Tree<V> bfs(int v, int maxDepth, Set<EdgeLabel> relations, LevelFilter filter) {
+        TraversalWorkspace workspace = TraversalWorkspace.get();
+        this.bfs(v, maxDepth, relations, filter, workspace);
+        return GraphTraversal.tree(v, this.getSize(), workspace, this);
+    }
+
+    public int bfs(int v, int maxDepth, Set<EdgeLabel> relations, LevelFilter filter, TraversalWorkspace workspace) {
+        return GraphTraversal.bfs(this.rows, this.getSize(), v, maxDepth, GraphTraversal.relationMask(relations),
+                filter, workspace);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,348 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams a movie graph from CSV files in one directory, one pass per file:
+ * <pre>
+ *   genres.csv       id,name
+ *   movies.csv       id,name,genreId[,x,y]
+ *   users.csv        id,name[,x,y]
+ *   watches.csv      userId,movieId
+ *   friendships.csv  userId,userId
+ * </pre>
+ * A file may start with a header row and may be missing. Fields can be quoted as in RFC 4180,
+ * including quoted commas, "" escapes and line breaks; a quote still open after
+ * MAX_QUOTED_LINES more lines, or at the end of the file, fails only the row it opened.
+ * Ids are longs and are resolved to vertex indices through one LongIntHashMap per entity
+ * type, so each lookup is O(1). Movies are linked to their genre as they are read, and a
+ * movie whose genre id is unknown is added without one. Vertices are added row by row;
+ * watches and friendships are held only until a bulk batch of BATCH_SIZE is added. Rows
+ * with too few fields, ids or coordinates that are not numbers, an id already loaded for
+ * the same entity type, or edges whose ids are unknown are skipped and counted, so one bad
+ * row never aborts a load.
+ */
+public class CsvGraphLoader {
+    private static final int PROGRESS_INTERVAL = 1_000_000;
+    // Edges are handed to the graph in bulk batches of this many rows
+    private static final int BATCH_SIZE = 1 << 20;
+    // Line breaks a quoted field may span before its row is given up as unterminated
+    private static final int MAX_QUOTED_LINES = 1000;
+    // Returned by parseId and parseCoordinate for a field that is not a number
+    private static final long MALFORMED = Long.MIN_VALUE;
+
+    private final Graph<Node> graph;
+    private final LongIntHashMap genreIds = new LongIntHashMap();
+    private final LongIntHashMap movieIds = new LongIntHashMap();
+    private final LongIntHashMap userIds = new LongIntHashMap();
+    private String[] fields = new String[8];
+
+    public CsvGraphLoader(Graph<Node> graph) {
+        this.graph = graph;
+    }
+
+    public static void load(Graph<Node> graph, Path directory) throws IOException {
+        new CsvGraphLoader(graph).loadDirectory(directory);
+    }
+
+    public void loadDirectory(Path directory) throws IOException {
+        long start = System.nanoTime();
+        this.loadGenres(directory.resolve("genres.csv"));
+        this.loadMovies(directory.resolve("movies.csv"));
+        this.loadUsers(directory.resolve("users.csv"));
+        this.loadEdges(directory.resolve("watches.csv"), this.userIds, this.movieIds, EdgeLabel.WATCHED);
+        this.loadEdges(directory.resolve("friendships.csv"), this.userIds, this.userIds, EdgeLabel.KNOWS);
+        System.out.printf("Loaded %d vertices from %s in %.2f s%n",
+                this.graph.getVertexCount(), directory, (System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    // -----------------------------
+    // Per-file loaders
+    // -----------------------------
+    private void loadGenres(Path file) throws IOException {
+        try (Progress progress = this.open(file)) {
+            if (progress == null) {
+                return;
+            }
+            int count;
+            while ((count = progress.next()) >= 0) {
+                long id = count < 2 ? MALFORMED : parseId(this.fields[0]);
+                if (id == MALFORMED || this.genreIds.get(id) >= 0) {
+                    progress.skip();
+                    continue;
+                }
+                this.genreIds.put(id, this.graph.getSize());
+                this.graph.addVertex(new Genre(this.fields[1], 0, 0));
+            }
+        }
+    }
+
+    private void loadMovies(Path file) throws IOException {
+        try (Progress progress = this.open(file)) {
+            if (progress == null) {
+                return;
+            }
+            int count;
+            while ((count = progress.next()) >= 0) {
+                long id = count < 3 ? MALFORMED : parseId(this.fields[0]);
+                long genreId = count < 3 ? MALFORMED : parseId(this.fields[2]);
+                long x = this.coordinate(count, 3);
+                long y = this.coordinate(count, 4);
+                if (id == MALFORMED || genreId == MALFORMED || x == MALFORMED || y == MALFORMED
+                        || this.movieIds.get(id) >= 0) {
+                    progress.skip();
+                    continue;
+                }
+                int genre = this.genreIds.get(genreId);
+                String genreName = genre >= 0 ? this.graph.getVertex(genre).getName() : "";
+
+                int index = this.graph.getSize();
+                this.movieIds.put(id, index);
+                this.graph.addVertex(new Movie(this.fields[1], genreName, (int) x, (int) y));
+                if (genre >= 0) {
+                    this.graph.addEdge(genre, index, EdgeLabel.IN_GENRE);
+                }
+            }
+        }
+    }
+
+    private void loadUsers(Path file) throws IOException {
+        try (Progress progress = this.open(file)) {
+            if (progress == null) {
+                return;
+            }
+            int count;
+            while ((count = progress.next()) >= 0) {
+                long id = count < 2 ? MALFORMED : parseId(this.fields[0]);
+                long x = this.coordinate(count, 2);
+                long y = this.coordinate(count, 3);
+                if (id == MALFORMED || x == MALFORMED || y == MALFORMED || this.userIds.get(id) >= 0) {
+                    progress.skip();
+                    continue;
+                }
+                this.userIds.put(id, this.graph.getSize());
+                this.graph.addVertex(new User(this.fields[1], (int) x, (int) y));
+            }
+        }
+    }
+
+    private void loadEdges(Path file, LongIntHashMap fromIds, LongIntHashMap toIds, EdgeLabel label) throws IOException {
+        try (Progress progress = this.open(file)) {
+            if (progress == null) {
+                return;
+            }
+            IntList us = new IntList();
+            IntList vs = new IntList();
+            int count;
+            while ((count = progress.next()) >= 0) {
+                long from = count < 2 ? MALFORMED : parseId(this.fields[0]);
+                long to = count < 2 ? MALFORMED : parseId(this.fields[1]);
+                int u = from == MALFORMED ? -1 : fromIds.get(from);
+                int v = to == MALFORMED ? -1 : toIds.get(to);
+                if (u < 0 || v < 0) {
+                    progress.skip();
+                    continue;
+                }
+                us.add(u);
+                vs.add(v);
+                if (us.size() == BATCH_SIZE) {
+                    this.flushEdges(us, vs, label);
+                }
+            }
+            this.flushEdges(us, vs, label);
+        }
+    }
+
+    private void flushEdges(IntList us, IntList vs, EdgeLabel label) {
+        this.graph.addEdges(us.toArray(), vs.toArray(), label);
+        us.clear();
+        vs.clear();
+    }
+
+    // An optional coordinate: 0 if absent or empty, MALFORMED if not an int
+    private long coordinate(int count, int field) {
+        if (count <= field || this.fields[field].trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(this.fields[field].trim());
+        } catch (NumberFormatException e) {
+            return MALFORMED;
+        }
+    }
+
+    private static long parseId(String field) {
+        try {
+            return Long.parseLong(field.trim());
+        } catch (NumberFormatException e) {
+            return MALFORMED;
+        }
+    }
+
+    private Progress open(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            System.out.println("Skipping " + file.getFileName() + ": not found");
+            return null;
+        }
+        return new Progress(file, Files.newBufferedReader(file, StandardCharsets.UTF_8));
+    }
+
+    // -----------------------------
+    // Line reading and CSV parsing
+    // -----------------------------
+
+    /** Reads one file row by row into {@code fields}, printing progress and rows/sec. */
+    private final class Progress implements AutoCloseable {
+        private final Path file;
+        private final BufferedReader reader;
+        // Lines read ahead for a quoted field that never closed, to be read again as rows
+        private final ArrayDeque<String> pushedBack = new ArrayDeque<>();
+        private final long start = System.nanoTime();
+        private long rows;
+        private long skipped;
+
+        Progress(Path file, BufferedReader reader) {
+            this.file = file;
+            this.reader = reader;
+        }
+
+        // Parses the next data row and returns its field count, 0 for an unterminated quoted
+        // field, or -1 at end of file
+        int next() throws IOException {
+            String line;
+            while ((line = this.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                // An odd number of quotes means a quoted field runs on past the line break.
+                // "" escapes add two, so they never change the parity
+                int quotes = countQuotes(line);
+                int count = -1;
+                if ((quotes & 1) != 0) {
+                    List<String> more = new ArrayList<>();
+                    String next;
+                    while ((quotes & 1) != 0 && more.size() < MAX_QUOTED_LINES && (next = this.readLine()) != null) {
+                        more.add(next);
+                        quotes += countQuotes(next);
+                    }
+                    if ((quotes & 1) != 0) {
+                        // Most likely a stray quote: fail this row and read the lines after it as rows
+                        for (int i = more.size() - 1; i >= 0; i--) {
+                            this.pushedBack.addFirst(more.get(i));
+                        }
+                        count = 0;
+                    } else {
+                        StringBuilder record = new StringBuilder(line);
+                        for (String part : more) {
+                            record.append('\n').append(part);
+                        }
+                        line = record.toString();
+                    }
+                }
+                if (count < 0) {
+                    count = CsvGraphLoader.this.split(line);
+                }
+                // A header row is one whose first field is not an id
+                if (count > 0 && this.rows == 0 && this.skipped == 0 && !isNumber(CsvGraphLoader.this.fields[0])) {
+                    continue;
+                }
+                if (++this.rows % PROGRESS_INTERVAL == 0) {
+                    this.report("...");
+                }
+                return count;
+            }
+            return -1;
+        }
+
+        void skip() {
+            this.skipped++;
+        }
+
+        private String readLine() throws IOException {
+            String line = this.pushedBack.poll();
+            return line != null ? line : this.reader.readLine();
+        }
+
+        private void report(String suffix) {
+            double seconds = (System.nanoTime() - this.start) / 1_000_000_000.0;
+            System.out.printf("%s: %,d rows (%,d skipped) in %.2f s, %,.0f rows/sec%s%n",
+                    this.file.getFileName(), this.rows, this.skipped, seconds, this.rows / Math.max(seconds, 1e-9), suffix);
+        }
+
+        public void close() throws IOException {
+            this.reader.close();
+            this.report("");
+        }
+    }
+
+    // Splits one CSV record into fields, honouring double-quoted fields with "" escapes
+    private int split(String line) {
+        int count = 0;
+        int i = 0;
+        int length = line.length();
+        StringBuilder quoted = null;
+        while (true) {
+            if (count == this.fields.length) {
+                this.fields = Arrays.copyOf(this.fields, count << 1);
+            }
+
+            if (i < length && line.charAt(i) == '"') {
+                if (quoted == null) {
+                    quoted = new StringBuilder();
+                }
+                quoted.setLength(0);
+                i++;
+                while (i < length) {
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        quoted.append(c);
+                    } else if (i < length && line.charAt(i) == '"') {
+                        quoted.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                this.fields[count++] = quoted.toString();
+                int comma = line.indexOf(',', i);
+                i = comma < 0 ? length + 1 : comma + 1;
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? length : comma;
+                this.fields[count++] = line.substring(i, end);
+                i = end + 1;
+            }
+
+            if (i > length) {
+                return count;
+            }
+        }
+    }
+
+    private static int countQuotes(String line) {
+        int quotes = 0;
+        for (int i = line.indexOf('"'); i >= 0; i = line.indexOf('"', i + 1)) {
+            quotes++;
+        }
+        return quotes;
+    }
+
+    private static boolean isNumber(String field) {
+        String trimmed = field.trim();
+        if (trimmed.isEmpty()) {
+            return false;
+        }
+        for (int i = trimmed.charAt(0) == '-' && trimmed.length() > 1 ? 1 : 0; i < trimmed.length(); i++) {
+            if (!Character.isDigit(trimmed.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
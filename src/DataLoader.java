@@ -93,20 +93,13 @@ public class DataLoader {
     }
 
     private static void loadGenreMovieConnections(Graph<Node> graph) {
-        for (int i = 0; i < graph.getSize(); i++) {
-            Node node1 = graph.getVertex(i);
-            if (node1 instanceof Genre) {
-                Genre genre = (Genre) node1;
-
-                for (int j = 0; j < graph.getSize(); j++) {
-                    Node node2 = graph.getVertex(j);
-                    if (node2 instanceof Movie) {
-                        Movie movie = (Movie) node2;
-
-                        if (genre.getName().equals(movie.getGenre())) {
-                            graph.addEdge(i, j);
-                        }
-                    }
+        for (int j = 0; j < graph.getSize(); j++) {
+            if (graph.getKind(j) == NodeKind.MOVIE) {
+                Movie movie = (Movie) graph.getVertex(j);
+
+                int genreIndex = graph.findIndex(Genre.class, movie.getGenre());
+                if (genreIndex >= 0) {
+                    graph.addEdge(genreIndex, j, EdgeLabel.IN_GENRE);
                 }
             }
         }
@@ -127,16 +120,11 @@ public class DataLoader {
             String userName = connection[0];
             String movieName = connection[1];
 
-            int userIndex = findNodeIndex(graph, userName);
-            int movieIndex = findNodeIndex(graph, movieName);
+            int userIndex = graph.findIndex(User.class, userName);
+            int movieIndex = graph.findIndex(Movie.class, movieName);
 
             if (userIndex >= 0 && movieIndex >= 0) {
-                Node user = graph.getVertex(userIndex);
-                Node movie = graph.getVertex(movieIndex);
-
-                if (user instanceof User && movie instanceof Movie) {
-                    graph.addEdge(userIndex, movieIndex);
-                }
+                graph.addEdge(userIndex, movieIndex, EdgeLabel.WATCHED);
             }
         }
     }
@@ -153,33 +141,13 @@ public class DataLoader {
             String user1Name = connection[0];
             String user2Name = connection[1];
 
-            int user1Index = findNodeIndex(graph, user1Name);
-            int user2Index = findNodeIndex(graph, user2Name);
+            int user1Index = graph.findIndex(User.class, user1Name);
+            int user2Index = graph.findIndex(User.class, user2Name);
 
             if (user1Index >= 0 && user2Index >= 0) {
-                Node user1 = graph.getVertex(user1Index);
-                Node user2 = graph.getVertex(user2Index);
-
-                if (user1 instanceof User && user2 instanceof User) {
-                    graph.addEdge(user1Index, user2Index);
-                }
-            }
-        }
-    }
-
-    private static int findNodeIndex(Graph<Node> graph, String name) {
-        if (name == null) {
-            return -1;
-        }
-
-        String targetName = name.trim();
-        for (int i = 0; i < graph.getSize(); i++) {
-            Node node = graph.getVertex(i);
-            if (node.getName() != null && node.getName().trim().equalsIgnoreCase(targetName)) {
-                return i;
+                graph.addEdge(user1Index, user2Index, EdgeLabel.KNOWS);
             }
         }
-        return -1;
     }
 
     private static int getGenreColumn(String genre) {
@@ -0,0 +1,49 @@
+/**
+ * Relation carried by an edge. Each vertex's neighbors are stored grouped by label,
+ * in declaration order, so all neighbors of one relation form a contiguous slice.
+ */
+public enum EdgeLabel {
+    WATCHED,
+    KNOWS,
+    IN_GENRE,
+    OTHER;
+
+    public static final int COUNT = values().length;
+
+    private static final EdgeLabel[] VALUES = values();
+
+    public static EdgeLabel of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /** Infers the relation between two vertices from their node kinds. */
+    public static EdgeLabel between(NodeKind a, NodeKind b) {
+        if (a == NodeKind.USER && b == NodeKind.USER) {
+            return KNOWS;
+        }
+        if (a == NodeKind.USER && b == NodeKind.MOVIE || a == NodeKind.MOVIE && b == NodeKind.USER) {
+            return WATCHED;
+        }
+        if (a == NodeKind.MOVIE && b == NodeKind.GENRE || a == NodeKind.GENRE && b == NodeKind.MOVIE) {
+            return IN_GENRE;
+        }
+        return OTHER;
+    }
+
+    /**
+     * The user end of a watch, the user-movie edge {@link #between} labels WATCHED, or -1 if
+     * u and v are not a user and a movie. Only looks at kinds, so listeners can still call it
+     * after the edge is gone.
+     */
+    public static int watcher(Graph<?> graph, int u, int v) {
+        NodeKind kindU = graph.getKind(u);
+        NodeKind kindV = graph.getKind(v);
+        if (kindU == NodeKind.USER && kindV == NodeKind.MOVIE) {
+            return u;
+        }
+        if (kindU == NodeKind.MOVIE && kindV == NodeKind.USER) {
+            return v;
+        }
+        return -1;
+    }
+}
@@ -2,4 +2,6 @@ public class Genre extends Node {
     public Genre(String name, int x, int y) {
         super(name, x, y);
     }
+
+    public NodeKind getKind() { return NodeKind.GENRE; }
 }
@@ -1,18 +1,44 @@
 import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
 
 public interface Graph<V> {
     int getSize();
 
+    int getVertexCount();
+
+    boolean hasVertex(int var1);
+
     List<V> getVertices();
 
     V getVertex(int var1);
 
     int getIndex(V var1);
 
+    int findIndex(String var1);
+
+    int findIndex(Class<? extends V> var1, String var2);
+
     List<Integer> getNeighbors(int var1);
 
+    int getNeighbor(int var1, int var2);
+
+    void forEachNeighbor(int var1, IntConsumer var2);
+
+    int neighborsInto(int var1, int[] var2);
+
     int getDegree(int var1);
 
+    NodeKind getKind(int var1);
+
+    int getDegree(int var1, EdgeLabel var2);
+
+    int getNeighbor(int var1, EdgeLabel var2, int var3);
+
+    EdgeLabel getLabel(int var1, int var2);
+
+    boolean hasEdge(int var1, int var2);
+
     void printEdges();
 
     void clear();
@@ -21,11 +47,33 @@ public interface Graph<V> {
 
     void addEdge(int var1, int var2);
 
+    void addEdge(int var1, int var2, EdgeLabel var3);
+
+    void addEdges(int[] var1, int[] var2);
+
+    void addEdges(int[] var1, int[] var2, EdgeLabel var3);
+
     boolean removeEdge(int var1, int var2);
 
     boolean removeVertex(V var1);
 
-    AbstractGraph<V>.Tree dfs(int var1);
+    void addGraphListener(GraphListener var1);
+
+    void removeGraphListener(GraphListener var1);
+
+    AbstractGraph.Tree<V> dfs(int var1);
+
+    AbstractGraph.Tree<V> bfs(int var1);
+
+    AbstractGraph.Tree<V> bfs(int var1, int var2);
+
+    AbstractGraph.Tree<V> bfs(int var1, int var2, LevelFilter var3);
+
+    AbstractGraph.Tree<V> bfs(int var1, int var2, Set<EdgeLabel> var3, LevelFilter var4);
+
+    int dfs(int var1, TraversalWorkspace var2);
+
+    int bfs(int var1, int var2, LevelFilter var3, TraversalWorkspace var4);
 
-    AbstractGraph<V>.Tree bfs(int var1);
+    int bfs(int var1, int var2, Set<EdgeLabel> var3, LevelFilter var4, TraversalWorkspace var5);
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects vertices and edges and builds an {@link UnweightedGraph} in one go. Edges are
+ * kept in primitive lists, so nothing is allocated per edge, and build() hands them to
+ * {@link AbstractGraph#addEdges(int[], int[])}, which sorts and deduplicates them and lays
+ * out every adjacency row once. Labels are inferred from the endpoints as
+ * {@link AbstractGraph#addEdge(int, int)} does. The builder is empty again after build().
+ */
+public class GraphBuilder<V> {
+    private final List<V> vertices = new ArrayList<>();
+    private final IntList us = new IntList();
+    private final IntList vs = new IntList();
+
+    public GraphBuilder<V> addVertex(V vertex) {
+        this.vertices.add(vertex);
+        return this;
+    }
+
+    public int getVertexCount() {
+        return this.vertices.size();
+    }
+
+    public GraphBuilder<V> addEdge(int u, int v) {
+        if (u < 0 || u >= this.vertices.size()) {
+            throw new IllegalArgumentException("No such index: " + u);
+        }
+        if (v < 0 || v >= this.vertices.size()) {
+            throw new IllegalArgumentException("No such index: " + v);
+        }
+        this.us.add(u);
+        this.vs.add(v);
+        return this;
+    }
+
+    public UnweightedGraph<V> build() {
+        UnweightedGraph<V> graph = new UnweightedGraph<>();
+        for (V vertex : this.vertices) {
+            graph.addVertex(vertex);
+        }
+        graph.addEdges(this.us.toArray(), this.vs.toArray());
+
+        this.vertices.clear();
+        this.us.clear();
+        this.vs.clear();
+        return graph;
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.Random;
+
+/**
+ * Checks getIndex and findIndex against linear scans while vertices, including equal
+ * vertices and duplicate names, are added and removed at random.
+ * Usage: java GraphIndexCheck [rounds]
+ * Exits with status 1 on the first mismatch.
+ */
+public class GraphIndexCheck {
+    private static final int VALUES = 8;
+    private static final int OPERATIONS = 400;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        for (int seed = 0; seed < rounds; seed++) {
+            checkEqualVertices(new Random(seed), seed);
+            checkDuplicateNames(new Random(seed), seed);
+        }
+        System.out.println("getIndex and findIndex match linear scans over " + rounds + " rounds");
+    }
+
+    // Boxed Integers of a few values, so most additions repeat an equal vertex
+    private static void checkEqualVertices(Random random, int seed) {
+        UnweightedGraph<Integer> graph = new UnweightedGraph<>();
+        for (int op = 0; op < OPERATIONS; op++) {
+            Integer value = random.nextInt(VALUES);
+            if (random.nextInt(3) == 0) {
+                graph.removeVertex(value);
+            } else {
+                graph.addVertex(value);
+                int size = graph.getSize();
+                if (size > 1 && random.nextBoolean()) {
+                    graph.addEdge(size - 1, firstLive(graph, random));
+                }
+            }
+            if (random.nextInt(50) == 0) {
+                graph.compact();
+            }
+
+            for (int v = 0; v < VALUES; v++) {
+                int expected = -1;
+                for (int i = 0; i < graph.getSize(); i++) {
+                    if (Integer.valueOf(v).equals(graph.getVertex(i))) {
+                        expected = i;
+                        break;
+                    }
+                }
+                if (graph.getIndex(v) != expected) {
+                    fail(seed, op, "getIndex(" + v + ") = " + graph.getIndex(v) + ", expected " + expected);
+                }
+            }
+        }
+    }
+
+    // Users whose names differ only in case and spacing, so findIndex has to fall back to the next one
+    private static void checkDuplicateNames(Random random, int seed) {
+        String[] names = {"ann", " Ann", "ANN ", "bob", "Bob"};
+        UnweightedGraph<Node> graph = new UnweightedGraph<>();
+        for (int op = 0; op < OPERATIONS; op++) {
+            if (graph.getVertexCount() > 0 && random.nextInt(3) == 0) {
+                graph.removeVertex(graph.getVertex(firstLive(graph, random)));
+            } else {
+                graph.addVertex(new User(names[random.nextInt(names.length)], 0, 0));
+            }
+
+            for (String name : new String[] {"ann", "bob"}) {
+                int expected = -1;
+                for (int i = 0; i < graph.getSize(); i++) {
+                    if (graph.hasVertex(i) && graph.getVertex(i).getName().trim().equalsIgnoreCase(name)) {
+                        expected = i;
+                        break;
+                    }
+                }
+                if (graph.findIndex(User.class, name) != expected) {
+                    fail(seed, op, "findIndex(" + name + ") = " + graph.findIndex(User.class, name)
+                            + ", expected " + expected);
+                }
+            }
+            for (int i = 0; i < graph.getSize(); i++) {
+                if (graph.hasVertex(i) && graph.getIndex(graph.getVertex(i)) != i) {
+                    fail(seed, op, "getIndex of the vertex at " + i + " = " + graph.getIndex(graph.getVertex(i)));
+                }
+            }
+        }
+    }
+
+    // A random live index, found by probing from a random start
+    private static int firstLive(Graph<?> graph, Random random) {
+        int size = graph.getSize();
+        int start = random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int v = (start + i) % size;
+            if (graph.hasVertex(v)) {
+                return v;
+            }
+        }
+        return start;
+    }
+
+    private static void fail(int seed, int op, String message) {
+        System.out.println("Mismatch in round " + seed + " after operation " + op + ": " + message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Receives structural changes of a graph after they are applied. Vertex arguments are
+ * indices in the graph as it is when the callback runs. Removing a vertex reports each of
+ * its edges through {@link #edgeRemoved} before {@link #vertexRemoved}.
+ */
+public interface GraphListener {
+    void vertexAdded(int v);
+
+    void vertexRemoved(int v);
+
+    void edgeAdded(int u, int v);
+
+    void edgeRemoved(int u, int v);
+
+    /** Indices were renumbered; remap[old] is the new index, or -1 for a dropped vertex. */
+    void compacted(int[] remap);
+
+    void cleared();
+}
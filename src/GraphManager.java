@@ -3,10 +3,12 @@ import java.util.*;
 public class GraphManager {
     private final Graph<Node> graph;
     private final Scanner sc;
+    private final ItemSimilarityIndex similarityIndex;
 
-    public GraphManager(Graph<Node> graph, Scanner sc) {
+    public GraphManager(Graph<Node> graph, Scanner sc, ItemSimilarityIndex similarityIndex) {
         this.graph = graph;
         this.sc = sc;
+        this.similarityIndex = similarityIndex;
     }
 
     // -----------------------------
@@ -116,7 +118,7 @@ public class GraphManager {
         graph.addVertex(newMovie);
         int movieIndex = graph.getSize() - 1;
 
-        int genreIndex = findNodeIndex(selectedGenre);
+        int genreIndex = findGenreIndex(selectedGenre);
         if (genreIndex < 0) {
             int genreN = graph.getSize();
             int genreRadius = 250;
@@ -130,7 +132,7 @@ public class GraphManager {
             System.out.println("Created new genre: " + selectedGenre);
         }
 
-        graph.addEdge(movieIndex, genreIndex);
+        graph.addEdge(movieIndex, genreIndex, EdgeLabel.IN_GENRE);
         System.out.println("Movie '" + movieName + "' [" + selectedGenre + "] added and connected to genre successfully.");
     }
 
@@ -254,7 +256,7 @@ public class GraphManager {
         int movieIdx = findMovieIndex(movieName);
 
         if (userIdx >= 0 && movieIdx >= 0) {
-            graph.addEdge(userIdx, movieIdx);
+            graph.addEdge(userIdx, movieIdx, EdgeLabel.WATCHED);
             System.out.println("Connected: " + userName + " watched " + movieName);
         } else {
             if (userIdx < 0) {
@@ -276,7 +278,7 @@ public class GraphManager {
         int user2Idx = findUserIndex(user2Name);
 
         if (user1Idx >= 0 && user2Idx >= 0) {
-            graph.addEdge(user1Idx, user2Idx);
+            graph.addEdge(user1Idx, user2Idx, EdgeLabel.KNOWS);
             System.out.println("Connected: " + user1Name + " knows " + user2Name);
         } else {
             if (user1Idx < 0) {
@@ -437,6 +439,20 @@ public class GraphManager {
                 }
                 System.out.println();
             }
+
+            List<Integer> alsoWatched = similarityIndex.mostSimilar(index, 5, ItemSimilarityIndex.Measure.JACCARD);
+            if (!alsoWatched.isEmpty()) {
+                System.out.print("Users who watched this also watched: ");
+                for (int i = 0; i < alsoWatched.size(); i++) {
+                    int other = alsoWatched.get(i);
+                    System.out.printf("%s (%.2f)", graph.getVertex(other).getName(),
+                            similarityIndex.similarity(index, other, ItemSimilarityIndex.Measure.JACCARD));
+                    if (i < alsoWatched.size() - 1) {
+                        System.out.print(", ");
+                    }
+                }
+                System.out.println();
+            }
         }
     }
 
@@ -445,49 +461,18 @@ public class GraphManager {
     // -----------------------------
 
     private int findNodeIndex(String name) {
-        if (name == null) {
-            return -1;
-        }
+        return graph.findIndex(name);
+    }
 
-        String targetName = name.trim();
-        for (int i = 0; i < graph.getSize(); i++) {
-            Node node = graph.getVertex(i);
-            if (node.getName() != null && node.getName().trim().equalsIgnoreCase(targetName)) {
-                return i;
-            }
-        }
-        return -1;
+    private int findGenreIndex(String genreName) {
+        return graph.findIndex(Genre.class, genreName);
     }
 
     private int findMovieIndex(String movieName) {
-        if (movieName == null) {
-            return -1;
-        }
-
-        String targetName = movieName.trim();
-        for (int i = 0; i < graph.getSize(); i++) {
-            Node node = graph.getVertex(i);
-            if (node instanceof Movie && node.getName() != null &&
-                    node.getName().trim().equalsIgnoreCase(targetName)) {
-                return i;
-            }
-        }
-        return -1;
+        return graph.findIndex(Movie.class, movieName);
     }
 
     private int findUserIndex(String userName) {
-        if (userName == null) {
-            return -1;
-        }
-
-        String targetName = userName.trim();
-        for (int i = 0; i < graph.getSize(); i++) {
-            Node node = graph.getVertex(i);
-            if (node instanceof User && node.getName() != null &&
-                    node.getName().trim().equalsIgnoreCase(targetName)) {
-                return i;
-            }
-        }
-        return -1;
+        return graph.findIndex(User.class, userName);
     }
 }
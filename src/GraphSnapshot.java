@@ -0,0 +1,336 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Binary snapshot of a movie graph that is loaded by memory-mapping instead of parsing.
+ * <p>
+ * The file is a header followed by little-endian sections, each starting on a 4-byte boundary:
+ * <pre>
+ *   header      magic, version, slot count n, label count, edge count (long), pool size (long),
+ *               sequence (long)
+ *   kinds       byte[n]   NodeKind ordinal of each vertex, OTHER for a removed one
+ *   x, y        int[n]    coordinates
+ *   strings     int[2n+1] pool offsets: string 2u is u's name, 2u+1 its genre ("" unless a movie)
+ *   offsets     int[n+1]  CSR row starts
+ *   labelEnds   int[n * EdgeLabel.COUNT]  absolute end of each label slice in targets
+ *   targets     int[e]    neighbors, grouped by label within each row
+ *   pool        byte[]    UTF-8 text of all strings
+ * </pre>
+ * A removed vertex keeps its slot as a tombstone with no strings or edges, so the snapshot
+ * has the same indices as the graph and writing one never needs a compaction.
+ * {@link #map} wraps the sections in a {@link CsrGraph} without copying or parsing them: a
+ * vertex is decoded the first time it is read, and the graph's vertex and name indexes are
+ * built on the first lookup. {@link #load} copies everything into a mutable graph.
+ * One mapping is limited to 2 GB, so int sections are mapped in 1 GB chunks and may be larger;
+ * the string pool is addressed by int offsets, and {@link #write} refuses a pool over 2 GB.
+ * <p>
+ * The sequence is an opaque number stored for the caller; {@link WriteAheadLog} uses it to
+ * record the last log entry the snapshot includes.
+ */
+public class GraphSnapshot {
+    private static final int MAGIC = 0x4D564753;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 40;
+
+    public static void write(Graph<Node> graph, Path file) throws IOException {
+        write(graph, file, 0);
+    }
+
+    public static void write(Graph<Node> graph, Path file, long sequence) throws IOException {
+        long start = System.nanoTime();
+        int n = graph.getSize();
+        byte[] kinds = new byte[n];
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        int[] strings = new int[2 * n + 1];
+        int[] offsets = new int[n + 1];
+        int[] labelEnds = new int[n * EdgeLabel.COUNT];
+        List<byte[]> text = new ArrayList<>(2 * n);
+        long poolSize = 0;
+        for (int u = 0; u < n; u++) {
+            Node node = graph.hasVertex(u) ? graph.getVertex(u) : null;
+            byte[] name = new byte[0];
+            byte[] genre = new byte[0];
+            kinds[u] = (byte) (node != null ? graph.getKind(u) : NodeKind.OTHER).ordinal();
+            if (node != null) {
+                // OTHER marks a tombstone, so a live vertex must be one of the kinds decode knows
+                if (node.getKind() == NodeKind.OTHER) {
+                    throw new IllegalArgumentException("Unsupported vertex kind at index " + u);
+                }
+                xs[u] = node.getX();
+                ys[u] = node.getY();
+                name = node.getName().getBytes(StandardCharsets.UTF_8);
+                genre = node instanceof Movie ? ((Movie) node).getGenre().getBytes(StandardCharsets.UTF_8) : genre;
+            }
+            text.add(name);
+            text.add(genre);
+            // Offsets are ints, so a pool past 2 GB would wrap them and corrupt the file
+            if (poolSize + name.length + genre.length > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot string pool would exceed " + Integer.MAX_VALUE + " bytes");
+            }
+            strings[2 * u + 1] = (int) (poolSize += name.length);
+            strings[2 * u + 2] = (int) (poolSize += genre.length);
+
+            int end = offsets[u];
+            for (EdgeLabel label : EdgeLabel.values()) {
+                end += graph.getDegree(u, label);
+                labelEnds[u * EdgeLabel.COUNT + label.ordinal()] = end;
+            }
+            offsets[u + 1] = end;
+        }
+
+        int edges = offsets[n];
+        int[] targets = new int[edges];
+        int next = 0;
+        for (int u = 0; u < n; u++) {
+            for (EdgeLabel label : EdgeLabel.values()) {
+                for (int i = 0; i < graph.getDegree(u, label); i++) {
+                    targets[next++] = graph.getNeighbor(u, label, i);
+                }
+            }
+        }
+
+        // Write to a temporary file and move it into place, so a crash never leaves a torn snapshot
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(EdgeLabel.COUNT)
+                    .putLong(edges).putLong(strings[2 * n]).putLong(sequence);
+            header.flip();
+            writeFully(channel, header);
+            writeFully(channel, ByteBuffer.wrap(Arrays.copyOf(kinds, align(n))));
+            writeInts(channel, xs);
+            writeInts(channel, ys);
+            writeInts(channel, strings);
+            writeInts(channel, offsets);
+            writeInts(channel, labelEnds);
+            writeInts(channel, targets);
+            for (byte[] bytes : text) {
+                writeFully(channel, ByteBuffer.wrap(bytes));
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("Wrote snapshot of %d vertices and %d edges to %s in %.2f s%n",
+                graph.getVertexCount(), edges, file, (System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    /**
+     * Maps the snapshot as an immutable graph that is read directly from the file. Only the
+     * header is parsed up front; vertices are decoded as they are read.
+     */
+    public static CsrGraph<Node> map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Sections sections = new Sections(channel);
+            return new CsrGraph<>(new MappedVertices(sections), sections.vertexCount, sections.offsets, sections.targets,
+                    sections.labelEnds, sections.kinds);
+        }
+    }
+
+    /**
+     * Replaces the contents of graph with the snapshot and returns its sequence. Rows are copied
+     * from the mapping rather than inserted edge by edge, and tombstones come back as removed
+     * vertices at the same indices; listeners are notified as after a compaction.
+     */
+    public static long load(Path file, AbstractGraph<Node> graph) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Sections sections = new Sections(channel);
+            graph.clear();
+            for (int u = 0; u < sections.n; u++) {
+                Node node = sections.decode(u);
+                if (node != null) {
+                    graph.addVertex(node);
+                } else {
+                    graph.addRemovedVertex();
+                }
+            }
+            graph.setRows(sections.offsets, sections.targets, sections.labelEnds);
+            System.out.printf("Loaded snapshot of %d vertices and %d edges from %s in %.2f s%n",
+                    sections.vertexCount, sections.targets.limit(), file, (System.nanoTime() - start) / 1_000_000_000.0);
+            return sections.sequence;
+        }
+    }
+
+    // -----------------------------
+    // Reading
+    // -----------------------------
+    private static final class Sections {
+        final int n;
+        final int vertexCount;
+        final long sequence;
+        final byte[] kinds;
+        final ChunkedIntBuffer xs;
+        final ChunkedIntBuffer ys;
+        final ChunkedIntBuffer strings;
+        final ChunkedIntBuffer offsets;
+        final ChunkedIntBuffer labelEnds;
+        final ChunkedIntBuffer targets;
+        final MappedByteBuffer pool;
+
+        Sections(FileChannel channel) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    break;
+                }
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException("Not a graph snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            this.n = header.getInt();
+            if (header.getInt() != EdgeLabel.COUNT) {
+                throw new IOException("Snapshot was written with a different set of edge labels");
+            }
+            long edges = header.getLong();
+            long poolSize = header.getLong();
+            this.sequence = header.getLong();
+
+            long position = HEADER_SIZE;
+            this.kinds = new byte[this.n];
+            map(channel, position, this.n).get(this.kinds);
+            int live = 0;
+            for (byte kind : this.kinds) {
+                if (kind != NodeKind.OTHER.ordinal()) {
+                    live++;
+                }
+            }
+            this.vertexCount = live;
+            position += align(this.n);
+            this.xs = mapInts(channel, position, this.n);
+            position += 4L * this.n;
+            this.ys = mapInts(channel, position, this.n);
+            position += 4L * this.n;
+            this.strings = mapInts(channel, position, 2L * this.n + 1);
+            position += 4L * (2L * this.n + 1);
+            this.offsets = mapInts(channel, position, this.n + 1L);
+            position += 4L * (this.n + 1L);
+            this.labelEnds = mapInts(channel, position, (long) this.n * EdgeLabel.COUNT);
+            position += 4L * this.n * EdgeLabel.COUNT;
+            this.targets = mapInts(channel, position, edges);
+            position += 4L * edges;
+            this.pool = map(channel, position, poolSize);
+        }
+
+        // Only absolute reads, so any thread may decode. Null for a tombstone
+        Node decode(int u) {
+            if (this.kinds[u] == NodeKind.OTHER.ordinal()) {
+                return null;
+            }
+            String name = this.string(2 * u);
+            int x = this.xs.get(u);
+            int y = this.ys.get(u);
+            switch (NodeKind.of(this.kinds[u])) {
+                case USER:
+                    return new User(name, x, y);
+                case MOVIE:
+                    return new Movie(name, this.string(2 * u + 1), x, y);
+                case GENRE:
+                    return new Genre(name, x, y);
+                default:
+                    throw new IllegalArgumentException("Unsupported vertex kind at index " + u);
+            }
+        }
+
+        private String string(int i) {
+            int from = this.strings.get(i);
+            byte[] bytes = new byte[this.strings.get(i + 1) - from];
+            this.pool.get(from, bytes, 0, bytes.length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // The vertex table of a mapped snapshot. Each vertex is decoded on first access and kept,
+    // so repeated reads return the same object
+    private static final class MappedVertices extends AbstractList<Node> {
+        private final Sections sections;
+        private final AtomicReferenceArray<Node> decoded;
+
+        MappedVertices(Sections sections) {
+            this.sections = sections;
+            this.decoded = new AtomicReferenceArray<>(sections.n);
+        }
+
+        public Node get(int u) {
+            Node node = this.decoded.get(u);
+            if (node == null) {
+                node = this.sections.decode(u);
+                if (!this.decoded.compareAndSet(u, null, node)) {
+                    node = this.decoded.get(u);
+                }
+            }
+            return node;
+        }
+
+        public int size() {
+            return this.sections.n;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot section of " + size + " bytes is too large to map");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    // Maps count ints as ChunkedIntBuffer.CHUNK-sized pieces, since one mapping cannot exceed 2 GB
+    private static ChunkedIntBuffer mapInts(FileChannel channel, long position, long count) throws IOException {
+        if (count > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot section of " + count + " ints is too large to index");
+        }
+        IntBuffer[] chunks = new IntBuffer[(int) Math.max(1, (count + ChunkedIntBuffer.CHUNK - 1) >>> ChunkedIntBuffer.CHUNK_BITS)];
+        for (int c = 0; c < chunks.length; c++) {
+            long from = (long) c << ChunkedIntBuffer.CHUNK_BITS;
+            chunks[c] = map(channel, position + 4 * from, 4 * Math.min(ChunkedIntBuffer.CHUNK, count - from)).asIntBuffer();
+        }
+        return new ChunkedIntBuffer(chunks, (int) count);
+    }
+
+    // -----------------------------
+    // Writing
+    // -----------------------------
+    private static void writeInts(FileChannel channel, int[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        for (int from = 0; from < values.length; ) {
+            int count = Math.min(buffer.capacity() >> 2, values.length - from);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, from, count);
+            buffer.limit(count << 2);
+            writeFully(channel, buffer);
+            from += count;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.Set;
+
+/**
+ * The DFS and BFS behind every {@link Graph} implementation, written once over {@link Rows}
+ * so AbstractGraph, CsrGraph and the versions of a VersionedGraph only differ in how they
+ * store a row. Results are left in a {@link TraversalWorkspace}; {@link #tree} copies them out.
+ */
+final class GraphTraversal {
+    static final int ALL_RELATIONS = (1 << EdgeLabel.COUNT) - 1;
+
+    /** Adjacency rows whose neighbors are grouped into one slice per {@link EdgeLabel}. */
+    interface Rows {
+        int degree(int u);
+
+        /** The i-th neighbor of u, for 0 <= i < degree(u). */
+        int neighbor(int u, int i);
+
+        /** Position in u's row where the slice of the label with this ordinal ends. */
+        int labelEnd(int u, int label);
+    }
+
+    private GraphTraversal() {
+    }
+
+    // Explicit-stack DFS; each frame remembers the next neighbor to try, so the visit order
+    // is the same as the recursive version without risking a StackOverflowError
+    static int dfs(Rows rows, int size, int v, TraversalWorkspace workspace) {
+        workspace.begin(size);
+        int[] stack = workspace.dfsStack();
+        int[] nextNeighbor = workspace.dfsNextNeighbor();
+        int top = 0;
+
+        stack[0] = v;
+        nextNeighbor[0] = 0;
+        workspace.visit(v, -1, 0);
+
+        while (top >= 0) {
+            int u = stack[top];
+            int i = nextNeighbor[top];
+            if (i == rows.degree(u)) {
+                --top;
+                continue;
+            }
+
+            nextNeighbor[top] = i + 1;
+            int w = rows.neighbor(u, i);
+            if (!workspace.isVisited(w)) {
+                ++top;
+                workspace.visit(w, u, top);
+                stack[top] = w;
+                nextNeighbor[top] = 0;
+            }
+        }
+        return workspace.getVisitedCount();
+    }
+
+    /**
+     * BFS that stops expanding at maxDepth hops from v and only follows edges whose label's
+     * bit is set in relationMask; skipped slices cost nothing. A non-null filter decides
+     * whether a vertex is visited at the level it would get.
+     */
+    static int bfs(Rows rows, int size, int v, int maxDepth, int relationMask, LevelFilter filter,
+                   TraversalWorkspace workspace) {
+        workspace.begin(size);
+        workspace.visit(v, -1, 0);
+        workspace.offer(v);
+
+        while (!workspace.isQueueEmpty()) {
+            int u = workspace.poll();
+            int level = workspace.getLevel(u);
+            if (level >= maxDepth) {
+                continue;
+            }
+
+            int start = 0;
+            for (int l = 0; l < EdgeLabel.COUNT; ++l) {
+                int end = rows.labelEnd(u, l);
+                if ((relationMask & 1 << l) != 0) {
+                    for (int i = start; i < end; ++i) {
+                        int w = rows.neighbor(u, i);
+                        if (!workspace.isVisited(w) && (filter == null || filter.accept(level + 1, w))) {
+                            workspace.visit(w, u, level + 1);
+                            workspace.offer(w);
+                        }
+                    }
+                }
+                start = end;
+            }
+        }
+        return workspace.getVisitedCount();
+    }
+
+    static int relationMask(Set<EdgeLabel> relations) {
+        int mask = 0;
+        for (EdgeLabel label : relations) {
+            mask |= 1 << label.ordinal();
+        }
+        return mask;
+    }
+
+    /** Copies the traversal just run in workspace, over a graph of size slots, into a Tree. */
+    static <V> AbstractGraph.Tree<V> tree(int root, int size, TraversalWorkspace workspace, Graph<V> graph) {
+        return new AbstractGraph.Tree<>(root, workspace.copyParents(size), workspace.copySearchOrder(),
+                workspace.copyLevels(size), graph.getVertices());
+    }
+}
@@ -43,23 +43,20 @@ public class GraphView extends Pane {
         List<Integer> unwatchedMovies = new ArrayList<>();
 
         for (int i = 0; i < vertices.size(); i++) {
-            if (vertices.get(i).getClass().getSimpleName().equals("User")) {
+            if (!graph.hasVertex(i)) continue;
+
+            if (graph.getKind(i) == NodeKind.USER) {
                 users.add(i);
-            } else if (vertices.get(i).getClass().getSimpleName().equals("Genre")) {
+            } else if (graph.getKind(i) == NodeKind.GENRE) {
                 genres.add(i);
             }
         }
 
         for (int i = 0; i < vertices.size(); i++) {
-            if (vertices.get(i).getClass().getSimpleName().equals("Movie")) {
-                boolean isWatched = false;
-                for (int userIdx : users) {
-                    if (graph.getNeighbors(userIdx).contains(i)) {
-                        isWatched = true;
-                        break;
-                    }
-                }
-                if (isWatched) {
+            if (!graph.hasVertex(i)) continue;
+
+            if (graph.getKind(i) == NodeKind.MOVIE) {
+                if (graph.getDegree(i, EdgeLabel.WATCHED) > 0) {
                     watchedMovies.add(i);
                 } else {
                     unwatchedMovies.add(i);
@@ -100,37 +97,33 @@ public class GraphView extends Pane {
 
     private void drawEdges(int[] cx, int[] cy) {
         int size = graph.getSize();
-        List<? extends Displayable> vertices = graph.getVertices();
 
         for(int i = 0; i < size; i++) {
-            List<Integer> neighbors = graph.getNeighbors(i);
             int x1 = cx[i];
             int y1 = cy[i];
 
-            for(int v : neighbors) {
-                if (i < v) {
-                    int x2 = cx[v];
-                    int y2 = cy[v];
-                    Line edge = new Line(x1, y1, x2, y2);
-
-                    Displayable node1 = vertices.get(i);
-                    Displayable node2 = vertices.get(v);
-                    String type1 = node1.getClass().getSimpleName();
-                    String type2 = node2.getClass().getSimpleName();
-
-                    if (type1.equals("User") && type2.equals("User")) {
-                        edge.setStroke(Color.BLUE);
-                        edge.setStrokeWidth(2);
-                    } else if (type1.equals("Genre") && type2.equals("Movie") ||
-                            type1.equals("Movie") && type2.equals("Genre")) {
-                        edge.setStroke(Color.GREEN);
-                        edge.setStrokeWidth(2);
-                    } else {
-                        edge.setStroke(Color.GRAY);
-                        edge.setStrokeWidth(1.5);
+            for (EdgeLabel label : EdgeLabel.values()) {
+                int degree = graph.getDegree(i, label);
+                for(int k = 0; k < degree; k++) {
+                    int v = graph.getNeighbor(i, label, k);
+                    if (i < v) {
+                        int x2 = cx[v];
+                        int y2 = cy[v];
+                        Line edge = new Line(x1, y1, x2, y2);
+
+                        if (label == EdgeLabel.KNOWS) {
+                            edge.setStroke(Color.BLUE);
+                            edge.setStrokeWidth(2);
+                        } else if (label == EdgeLabel.IN_GENRE) {
+                            edge.setStroke(Color.GREEN);
+                            edge.setStrokeWidth(2);
+                        } else {
+                            edge.setStroke(Color.GRAY);
+                            edge.setStrokeWidth(1.5);
+                        }
+
+                        this.getChildren().add(edge);
                     }
-
-                    this.getChildren().add(edge);
                 }
             }
         }
@@ -140,17 +133,19 @@ public class GraphView extends Pane {
         int size = graph.getSize();
 
         for(int i = 0; i < size; i++) {
+            if (!graph.hasVertex(i)) continue;
+
             String name = vertices.get(i).getName();
             int x = cx[i];
             int y = cy[i];
 
             Circle circle = new Circle(x, y, nodeRadius);
-            Displayable vertex = vertices.get(i);
+            NodeKind kind = graph.getKind(i);
 
-            if (vertex.getClass().getSimpleName().equals("User")) {
+            if (kind == NodeKind.USER) {
                 circle.setFill(Color.LIGHTBLUE);
                 circle.setStroke(Color.DARKBLUE);
-            } else if (vertex.getClass().getSimpleName().equals("Genre")) {
+            } else if (kind == NodeKind.GENRE) {
                 circle.setFill(Color.ORANGE);
                 circle.setStroke(Color.DARKORANGE);
                 circle.setRadius(nodeRadius + 5);
@@ -168,9 +163,9 @@ public class GraphView extends Pane {
             this.getChildren().add(label);
 
             String typeIndicator;
-            if (vertex.getClass().getSimpleName().equals("User")) {
+            if (kind == NodeKind.USER) {
                 typeIndicator = "U";
-            } else if (vertex.getClass().getSimpleName().equals("Genre")) {
+            } else if (kind == NodeKind.GENRE) {
                 typeIndicator = "G";
             } else {
                 typeIndicator = "M";
@@ -194,19 +189,20 @@ public class GraphView extends Pane {
         List<? extends Displayable> vertices = graph.getVertices();
 
         for (int i = 0; i < vertices.size(); i++) {
-            Displayable vertex = vertices.get(i);
-            if (vertex.getClass().getSimpleName().equals("User")) {
+            if (!graph.hasVertex(i)) continue;
+
+            NodeKind kind = graph.getKind(i);
+            if (kind == NodeKind.USER) {
                 userCount++;
-                for (int neighbor : graph.getNeighbors(i)) {
-                    if (vertices.get(neighbor).getClass().getSimpleName().equals("User") && i < neighbor) {
+                for (int k = 0; k < graph.getDegree(i, EdgeLabel.KNOWS); k++) {
+                    if (i < graph.getNeighbor(i, EdgeLabel.KNOWS, k)) {
                         userUserEdges++;
-                    } else if (vertices.get(neighbor).getClass().getSimpleName().equals("Movie")) {
-                        userMovieEdges++;
                     }
                 }
-            } else if (vertex.getClass().getSimpleName().equals("Movie")) {
+                userMovieEdges += graph.getDegree(i, EdgeLabel.WATCHED);
+            } else if (kind == NodeKind.MOVIE) {
                 movieCount++;
-            } else if (vertex.getClass().getSimpleName().equals("Genre")) {
+            } else if (kind == NodeKind.GENRE) {
                 genreCount++;
             }
         }
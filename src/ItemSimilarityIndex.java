@@ -0,0 +1,259 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * "Users who watched X also watched Y": for every pair of movies, the number of users who
+ * watched both, kept in sparse primitive rows so a lookup never scans the graph.
+ * <p>
+ * Row a lists (b, count) pairs in parallel int arrays; pairIndex maps packed (a, b) to the
+ * pair's position in row a, and removal swaps in the row's last pair, as the graph does
+ * for its adjacency rows. The index listens to the graph: a new watch bumps the counts
+ * between that movie and the user's other movies, and a removed watch lowers them, so an
+ * update costs O(movies the user watched).
+ * <p>
+ * Nothing is built until the first query, so a graph that is never asked "also watched"
+ * pays only for the listener. Each row holds at most maxRowSize pairs: once a row is full,
+ * a movie first co-watched after that is not tracked for it, which bounds memory on
+ * popular movies at the cost of missing late partners. A pair that takes a slot freed by a
+ * decrement starts counting from then, so its count may be low.
+ */
+public class ItemSimilarityIndex implements GraphListener {
+    public enum Measure { JACCARD, COSINE }
+
+    public static final int DEFAULT_MAX_ROW_SIZE = 256;
+
+    private static final int[] EMPTY_ROW = new int[0];
+
+    private final Graph<?> graph;
+    private final int maxRowSize;
+    // False until the first query, and again after a compaction or clear drops the rows
+    private boolean built;
+    private int[][] rowItems = new int[0][];
+    private int[][] rowCounts = new int[0][];
+    private int[] rowSizes = new int[0];
+    private int[] watchCounts = new int[0];
+    private final LongIntHashMap pairIndex = new LongIntHashMap();
+
+    private final TopKHeap heap = new TopKHeap();
+    private long[] keys = new long[0];
+
+    public ItemSimilarityIndex(Graph<?> graph) {
+        this(graph, DEFAULT_MAX_ROW_SIZE);
+    }
+
+    public ItemSimilarityIndex(Graph<?> graph, int maxRowSize) {
+        this.graph = graph;
+        this.maxRowSize = maxRowSize;
+        graph.addGraphListener(this);
+    }
+
+    /** Number of users who watched both a and b, or 0 if the pair did not fit in a's row. */
+    public int getCoWatchCount(int a, int b) {
+        this.ensureBuilt();
+        int pos = this.pairIndex.get(AbstractGraph.edgeKey(a, b));
+        return pos < 0 ? 0 : this.rowCounts[a][pos];
+    }
+
+    public int getWatchCount(int movie) {
+        this.ensureBuilt();
+        return movie < this.watchCounts.length ? this.watchCounts[movie] : 0;
+    }
+
+    public double similarity(int a, int b, Measure measure) {
+        return this.similarity(this.getCoWatchCount(a, b), a, b, measure);
+    }
+
+    public List<Integer> mostSimilar(int movie, int k, Measure measure) {
+        int[] movies = new int[Math.min(k, this.graph.getSize())];
+        int count = this.mostSimilar(movie, k, measure, movies);
+        List<Integer> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(movies[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Writes up to k movies co-watched with {@code movie} into {@code movies}, most similar
+     * first, and returns how many were written. Costs O(row length).
+     */
+    public int mostSimilar(int movie, int k, Measure measure, int[] movies) {
+        this.ensureBuilt();
+        k = Math.min(k, this.graph.getSize());
+        if (this.keys.length < k) {
+            this.keys = new long[k];
+        }
+        this.heap.reset(k);
+
+        int size = movie < this.rowSizes.length ? this.rowSizes[movie] : 0;
+        for (int i = 0; i < size; i++) {
+            int other = this.rowItems[movie][i];
+            float score = (float) this.similarity(this.rowCounts[movie][i], movie, other, measure);
+            this.heap.offer(TopKHeap.pack(score, other));
+        }
+
+        int count = this.heap.drainTo(this.keys);
+        for (int i = 0; i < count; i++) {
+            movies[i] = TopKHeap.vertex(this.keys[i]);
+        }
+        return count;
+    }
+
+    private void ensureBuilt() {
+        if (!this.built) {
+            this.rebuild();
+        }
+    }
+
+    private double similarity(int both, int a, int b, Measure measure) {
+        if (both == 0) {
+            return 0;
+        }
+        int countA = this.watchCounts[a];
+        int countB = this.watchCounts[b];
+        if (measure == Measure.JACCARD) {
+            return (double) both / (countA + countB - both);
+        }
+        return both / Math.sqrt((double) countA * countB);
+    }
+
+    /** Recomputes every row from the graph's current watches. */
+    public void rebuild() {
+        int n = this.graph.getSize();
+        this.rowItems = new int[n][];
+        this.rowCounts = new int[n][];
+        this.rowSizes = new int[n];
+        this.watchCounts = new int[n];
+        Arrays.fill(this.rowItems, EMPTY_ROW);
+        Arrays.fill(this.rowCounts, EMPTY_ROW);
+        this.pairIndex.clear();
+
+        for (int user = 0; user < n; user++) {
+            if (this.graph.getKind(user) != NodeKind.USER) {
+                continue;
+            }
+            int watched = this.graph.getDegree(user, EdgeLabel.WATCHED);
+            for (int i = 0; i < watched; i++) {
+                int movie = this.graph.getNeighbor(user, EdgeLabel.WATCHED, i);
+                this.watchCounts[movie]++;
+                for (int j = 0; j < i; j++) {
+                    int other = this.graph.getNeighbor(user, EdgeLabel.WATCHED, j);
+                    this.increment(movie, other);
+                    this.increment(other, movie);
+                }
+            }
+        }
+        this.built = true;
+    }
+
+    // Frees the rows; the next query rebuilds them
+    private void discard() {
+        this.built = false;
+        this.rowItems = new int[0][];
+        this.rowCounts = new int[0][];
+        this.rowSizes = new int[0];
+        this.watchCounts = new int[0];
+        this.pairIndex.clear();
+    }
+
+    // -----------------------------
+    // Incremental updates
+    // -----------------------------
+    public void vertexAdded(int v) {
+        if (this.built && v >= this.rowSizes.length) {
+            int capacity = Math.max(v + 1, this.rowSizes.length << 1);
+            int oldCapacity = this.rowSizes.length;
+            this.rowItems = Arrays.copyOf(this.rowItems, capacity);
+            this.rowCounts = Arrays.copyOf(this.rowCounts, capacity);
+            this.rowSizes = Arrays.copyOf(this.rowSizes, capacity);
+            this.watchCounts = Arrays.copyOf(this.watchCounts, capacity);
+            Arrays.fill(this.rowItems, oldCapacity, capacity, EMPTY_ROW);
+            Arrays.fill(this.rowCounts, oldCapacity, capacity, EMPTY_ROW);
+        }
+    }
+
+    public void vertexRemoved(int v) {
+        // Removing its watches first brought every count in its row, and its own watch count, to zero
+    }
+
+    public void edgeAdded(int u, int v) {
+        int user = this.built ? EdgeLabel.watcher(this.graph, u, v) : -1;
+        if (user < 0) {
+            return;
+        }
+        int movie = user == u ? v : u;
+        this.watchCounts[movie]++;
+        int watched = this.graph.getDegree(user, EdgeLabel.WATCHED);
+        for (int i = 0; i < watched; i++) {
+            int other = this.graph.getNeighbor(user, EdgeLabel.WATCHED, i);
+            if (other != movie) {
+                this.increment(movie, other);
+                this.increment(other, movie);
+            }
+        }
+    }
+
+    public void edgeRemoved(int u, int v) {
+        int user = this.built ? EdgeLabel.watcher(this.graph, u, v) : -1;
+        if (user < 0) {
+            return;
+        }
+        int movie = user == u ? v : u;
+        this.watchCounts[movie]--;
+        int watched = this.graph.getDegree(user, EdgeLabel.WATCHED);
+        for (int i = 0; i < watched; i++) {
+            int other = this.graph.getNeighbor(user, EdgeLabel.WATCHED, i);
+            this.decrement(movie, other);
+            this.decrement(other, movie);
+        }
+    }
+
+    public void compacted(int[] remap) {
+        this.discard();
+    }
+
+    public void cleared() {
+        this.discard();
+    }
+
+    private void increment(int a, int b) {
+        long key = AbstractGraph.edgeKey(a, b);
+        int pos = this.pairIndex.get(key);
+        if (pos >= 0) {
+            this.rowCounts[a][pos]++;
+            return;
+        }
+
+        int size = this.rowSizes[a];
+        if (size == this.maxRowSize) {
+            return;
+        }
+        if (size == this.rowItems[a].length) {
+            int capacity = Math.min(Math.max(4, size << 1), this.maxRowSize);
+            this.rowItems[a] = Arrays.copyOf(this.rowItems[a], capacity);
+            this.rowCounts[a] = Arrays.copyOf(this.rowCounts[a], capacity);
+        }
+        this.rowItems[a][size] = b;
+        this.rowCounts[a][size] = 1;
+        this.rowSizes[a] = size + 1;
+        this.pairIndex.put(key, size);
+    }
+
+    private void decrement(int a, int b) {
+        long key = AbstractGraph.edgeKey(a, b);
+        int pos = this.pairIndex.get(key);
+        if (pos < 0 || --this.rowCounts[a][pos] > 0) {
+            return;
+        }
+
+        this.pairIndex.remove(key);
+        int last = --this.rowSizes[a];
+        if (pos != last) {
+            int moved = this.rowItems[a][last];
+            this.rowItems[a][pos] = moved;
+            this.rowCounts[a][pos] = this.rowCounts[a][last];
+            this.pairIndex.put(AbstractGraph.edgeKey(a, moved), pos);
+        }
+    }
+}
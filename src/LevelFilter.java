@@ -0,0 +1,7 @@
+/**
+ * Decides whether a bounded BFS may visit {@code vertex} as part of level {@code level}.
+ * Rejected vertices are neither added to the tree nor expanded.
+ */
+public interface LevelFilter {
+    boolean accept(int level, int vertex);
+}
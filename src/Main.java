@@ -1,8 +1,21 @@
 import javafx.application.Application;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 public class Main extends Application {
-    private static Graph<Node> graph = new UnweightedGraph<>();
+    // Edits are logged as they happen, folded into the snapshot at checkpoints and recovered on the next launch
+    public static final Path SNAPSHOT_FILE = Paths.get("movie-graph.snapshot");
+    public static final Path LOG_FILE = Paths.get("movie-graph.log");
+
+    private static UnweightedGraph<Node> graph = new UnweightedGraph<>();
+    // The console thread commits edits as new versions while the FX thread draws an older one
+    private static VersionedGraph<Node> sharedGraph;
+    private static volatile WriteAheadLog graphLog;
     private static Main instance;
     private Stage primaryStage;
 
@@ -17,17 +30,84 @@ public class Main extends Application {
         primaryStage.hide();
 
         Thread consoleThread = new Thread(() -> {
-            new ConsoleMenu(graph, this).mainMenu();
+            new ConsoleMenu(sharedGraph, this).mainMenu();
         });
         consoleThread.setDaemon(true);
         consoleThread.start();
     }
 
-    public static void main(String[] args) {
-        DataLoader.loadDefaultData(graph);
+    // An optional first argument names a directory of CSV files or a snapshot file to start from;
+    // otherwise the saved snapshot and log are recovered, and the built-in data is used if there are none.
+    // Importing never replaces a saved graph, so its edits cannot be lost by accident
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && (Files.exists(SNAPSHOT_FILE) || Files.exists(LOG_FILE))) {
+            System.out.println("A saved graph already exists in " + SNAPSHOT_FILE + " and " + LOG_FILE
+                    + "; move or delete them before importing " + args[0]);
+            System.exit(1);
+        }
+        if (args.length == 0 && Files.exists(SNAPSHOT_FILE) && !WriteAheadLog.hasRecords(LOG_FILE)) {
+            // Nothing to replay, so reads are served straight from the mapped snapshot; it is
+            // only copied into the mutable graph, and the log reopened, on the first edit
+            long start = System.nanoTime();
+            CsrGraph<Node> mapped = GraphSnapshot.map(SNAPSHOT_FILE);
+            System.out.printf("Mapped snapshot of %d vertices and %d edges from %s in %.2f s%n", mapped.getVertexCount(),
+                    mapped.getEdgeCount(), SNAPSHOT_FILE, (System.nanoTime() - start) / 1_000_000_000.0);
+            sharedGraph = new VersionedGraph<>(mapped, () -> {
+                try {
+                    graphLog = WriteAheadLog.recover(graph, SNAPSHOT_FILE, LOG_FILE);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return graph;
+            });
+        } else if (args.length == 0 && Files.exists(SNAPSHOT_FILE)) {
+            graphLog = WriteAheadLog.recover(graph, SNAPSHOT_FILE, LOG_FILE);
+        } else {
+            if (args.length > 0 && Files.isDirectory(Paths.get(args[0]))) {
+                CsvGraphLoader.load(graph, Paths.get(args[0]));
+            } else if (args.length > 0) {
+                GraphSnapshot.load(Paths.get(args[0]), graph);
+            } else {
+                DataLoader.loadDefaultData(graph);
+            }
+            graphLog = WriteAheadLog.create(graph, SNAPSHOT_FILE, LOG_FILE);
+        }
+        if (sharedGraph == null) {
+            sharedGraph = new VersionedGraph<>(graph);
+        }
+        // Each edit made through the shared graph returns only once its log record is on disk
+        sharedGraph.setDurability(() -> {
+            if (graphLog != null) {
+                graphLog.sync();
+            }
+        });
         launch(args); // no console thread here
     }
 
+    // Called from the console thread between menu actions, when no edit is in progress.
+    // There is no log until the first edit when the graph was started from the mapped snapshot
+    public void checkpointIfDue() {
+        try {
+            if (graphLog != null && graphLog.isCheckpointDue()) {
+                sharedGraph.batch(graphLog::checkpoint);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not checkpoint the graph: " + e.getMessage());
+        }
+    }
+
+    public void saveSnapshot() {
+        if (graphLog == null) {
+            return;
+        }
+        try {
+            sharedGraph.batch(graphLog::checkpoint);
+            graphLog.close();
+        } catch (IOException e) {
+            System.out.println("Could not save the graph: " + e.getMessage());
+        }
+    }
+
     public Stage getPrimaryStage() {
         return primaryStage;
     }
@@ -7,4 +7,6 @@ public class Movie extends Node {
     }
 
     public String getGenre() { return genre; }
+
+    public NodeKind getKind() { return NodeKind.MOVIE; }
 }
@@ -0,0 +1,105 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Case-insensitive (type, name) -> vertex index lookup for {@link Displayable} vertices.
+ * Names are trimmed and lower-cased, matching the old trim().equalsIgnoreCase scans.
+ * When several vertices of one type share a name, the lowest index wins. Every index is kept,
+ * sorted, so removing the winner falls back to the next duplicate.
+ */
+public class NameIndex {
+    private final Map<Class<?>, Map<String, int[]>> byType = new HashMap<>();
+
+    public void add(Object vertex, int index) {
+        String key = key(vertex);
+        if (key != null) {
+            Map<String, int[]> names = byType.computeIfAbsent(vertex.getClass(), (t) -> new HashMap<>());
+            names.put(key, withIndex(names.get(key), index));
+        }
+    }
+
+    public void remove(Object vertex, int index) {
+        String key = key(vertex);
+        Map<String, int[]> names = key == null ? null : byType.get(vertex.getClass());
+        int[] indices = names == null ? null : names.get(key);
+        if (indices == null) {
+            return;
+        }
+        int[] rest = withoutIndex(indices, index);
+        if (rest == null) {
+            names.remove(key);
+        } else {
+            names.put(key, rest);
+        }
+    }
+
+    public void clear() {
+        byType.clear();
+    }
+
+    /** Returns the lowest index of a vertex whose class is {@code type} or a subtype of it, or -1. */
+    public int find(Class<?> type, String name) {
+        String key = normalize(name);
+        if (key == null) {
+            return -1;
+        }
+
+        int best = -1;
+        for (Map.Entry<Class<?>, Map<String, int[]>> entry : byType.entrySet()) {
+            if (type.isAssignableFrom(entry.getKey())) {
+                int[] indices = entry.getValue().get(key);
+                if (indices != null && (best < 0 || indices[0] < best)) {
+                    best = indices[0];
+                }
+            }
+        }
+        return best;
+    }
+
+    public int find(String name) {
+        return find(Object.class, name);
+    }
+
+    /** Returns the sorted postings with index added; indices may be null for none. */
+    static int[] withIndex(int[] indices, int index) {
+        if (indices == null) {
+            return new int[] {index};
+        }
+        int pos = Arrays.binarySearch(indices, index);
+        if (pos >= 0) {
+            return indices;
+        }
+        pos = -pos - 1;
+        int[] grown = new int[indices.length + 1];
+        System.arraycopy(indices, 0, grown, 0, pos);
+        grown[pos] = index;
+        System.arraycopy(indices, pos, grown, pos + 1, indices.length - pos);
+        return grown;
+    }
+
+    /** Returns the sorted postings without index, or null if none are left. */
+    static int[] withoutIndex(int[] indices, int index) {
+        int pos = Arrays.binarySearch(indices, index);
+        if (pos < 0) {
+            return indices;
+        }
+        if (indices.length == 1) {
+            return null;
+        }
+        int[] shrunk = new int[indices.length - 1];
+        System.arraycopy(indices, 0, shrunk, 0, pos);
+        System.arraycopy(indices, pos + 1, shrunk, pos, shrunk.length - pos);
+        return shrunk;
+    }
+
+    /** The normalized name vertex is indexed under, or null if it has none. */
+    static String key(Object vertex) {
+        return vertex instanceof Displayable ? normalize(((Displayable) vertex).getName()) : null;
+    }
+
+    static String normalize(String name) {
+        return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -11,4 +11,6 @@ public abstract class Node implements Displayable {
     public String getName() { return name; }
     public int getX() { return x; }
     public int getY() { return y; }
+
+    public abstract NodeKind getKind();
 }
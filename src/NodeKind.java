@@ -0,0 +1,20 @@
+/**
+ * Kind of a graph node. Graphs keep one byte per vertex holding the ordinal, so a type
+ * check in a traversal or render loop is a single array load.
+ */
+public enum NodeKind {
+    USER,
+    MOVIE,
+    GENRE,
+    OTHER;
+
+    private static final NodeKind[] VALUES = values();
+
+    public static NodeKind of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    public static NodeKind of(Object vertex) {
+        return vertex instanceof Node ? ((Node) vertex).getKind() : OTHER;
+    }
+}
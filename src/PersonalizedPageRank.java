@@ -0,0 +1,194 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Recommends movies by personalized PageRank (random walk with restart) from the user,
+ * approximated with forward push (Andersen, Chung and Lang). Every vertex holds an
+ * estimate and a residual. Pushing a vertex moves alpha of its residual into its estimate
+ * and spreads the rest evenly over its neighbors. Pushing stops once each residual is
+ * below epsilon times the vertex's degree, and then every estimate is within epsilon times
+ * its degree of the true value. The work is O(1 / (alpha * epsilon)) no matter how large
+ * the graph is.
+ * <p>
+ * Pushes run in rounds over the vertices above threshold. Large rounds are split across
+ * {@code pool}: residuals are doubles in an AtomicLongArray updated by CAS, and a vertex
+ * joins the next round's frontier only on the add that lifts it over its threshold, so it
+ * is queued once. Scratch arrays are reused, and only the vertices a query touched are
+ * reset. An instance is not thread-safe; give each caller its own.
+ */
+public class PersonalizedPageRank {
+    public static final double DEFAULT_ALPHA = 0.15;
+    public static final double DEFAULT_EPSILON = 1e-6;
+    private static final int PARALLEL_FRONTIER_THRESHOLD = 4096;
+
+    private final Graph<Node> graph;
+    private final double alpha;
+    private final double epsilon;
+    private final ForkJoinPool pool;
+
+    private double[] estimates = new double[0];
+    private AtomicLongArray residuals = new AtomicLongArray(0);
+    private int[] frontier = new int[0];
+    // Per chunk: the next frontier and every vertex whose residual left zero
+    private final IntList[] nextBuffers;
+    private final IntList[] touchedBuffers;
+
+    private final TopKHeap heap = new TopKHeap();
+    private long[] keys = new long[0];
+
+    public PersonalizedPageRank(Graph<Node> graph) {
+        this(graph, DEFAULT_ALPHA, DEFAULT_EPSILON, ForkJoinPool.commonPool());
+    }
+
+    public PersonalizedPageRank(Graph<Node> graph, double alpha, double epsilon, ForkJoinPool pool) {
+        if (alpha <= 0 || alpha >= 1) {
+            throw new IllegalArgumentException("alpha must be in (0, 1): " + alpha);
+        }
+        if (epsilon <= 0) {
+            throw new IllegalArgumentException("epsilon must be positive: " + epsilon);
+        }
+        this.graph = graph;
+        this.alpha = alpha;
+        this.epsilon = epsilon;
+        this.pool = pool;
+
+        int chunks = pool.getParallelism() * 4;
+        this.nextBuffers = new IntList[chunks];
+        this.touchedBuffers = new IntList[chunks];
+        for (int c = 0; c < chunks; c++) {
+            this.nextBuffers[c] = new IntList();
+            this.touchedBuffers[c] = new IntList();
+        }
+    }
+
+    public List<Movie> recommend(int user, int k) {
+        int[] movies = new int[Math.min(k, this.graph.getSize())];
+        int count = this.recommend(user, k, movies, null);
+        List<Movie> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add((Movie) this.graph.getVertex(movies[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Writes up to k movies the user has not watched into {@code movies}, highest PageRank
+     * first, and returns how many were written. If {@code scores} is not null it receives
+     * each movie's estimate.
+     */
+    public int recommend(int user, int k, int[] movies, float[] scores) {
+        k = Math.min(k, this.graph.getSize());
+        this.push(user);
+
+        if (this.keys.length < k) {
+            this.keys = new long[k];
+        }
+        this.heap.reset(k);
+        for (IntList touched : this.touchedBuffers) {
+            for (int i = 0; i < touched.size(); i++) {
+                int v = touched.get(i);
+                // A vertex can be listed twice; the reset below makes the second copy a no-op
+                double estimate = this.estimates[v];
+                if (estimate > 0 && this.graph.getKind(v) == NodeKind.MOVIE && !this.graph.hasEdge(user, v)) {
+                    this.heap.offer(TopKHeap.pack((float) estimate, v));
+                }
+                this.estimates[v] = 0;
+                this.residuals.set(v, 0L);
+            }
+            touched.clear();
+        }
+
+        int count = this.heap.drainTo(this.keys);
+        for (int i = 0; i < count; i++) {
+            movies[i] = TopKHeap.vertex(this.keys[i]);
+            if (scores != null) {
+                scores[i] = TopKHeap.floatScore(this.keys[i]);
+            }
+        }
+        return count;
+    }
+
+    private void push(int source) {
+        int n = this.graph.getSize();
+        if (this.estimates.length < n) {
+            int capacity = Math.max(n, this.estimates.length + (this.estimates.length >> 1));
+            this.estimates = new double[capacity];
+            this.residuals = new AtomicLongArray(capacity);
+            this.frontier = new int[capacity];
+        }
+
+        int chunks = this.nextBuffers.length;
+        this.residuals.set(source, Double.doubleToRawLongBits(1.0));
+        this.touchedBuffers[0].add(source);
+        this.frontier[0] = source;
+        int size = 1;
+
+        while (size > 0) {
+            int frontierSize = size;
+            if (frontierSize < PARALLEL_FRONTIER_THRESHOLD) {
+                this.pushChunk(0, frontierSize, this.nextBuffers[0], this.touchedBuffers[0]);
+            } else {
+                int chunkSize = (frontierSize + chunks - 1) / chunks;
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+                for (int c = 0; c < chunks; c++) {
+                    int from = c * chunkSize;
+                    int to = Math.min(frontierSize, from + chunkSize);
+                    IntList next = this.nextBuffers[c];
+                    IntList touched = this.touchedBuffers[c];
+                    if (from < to) {
+                        tasks.add(ForkJoinTask.adapt(() -> this.pushChunk(from, to, next, touched)));
+                    }
+                }
+                this.pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            }
+
+            size = 0;
+            for (IntList next : this.nextBuffers) {
+                next.copyTo(this.frontier, size);
+                size += next.size();
+                next.clear();
+            }
+        }
+    }
+
+    private void pushChunk(int from, int to, IntList next, IntList touched) {
+        for (int i = from; i < to; i++) {
+            int u = this.frontier[i];
+            double residual = Double.longBitsToDouble(this.residuals.getAndSet(u, 0L));
+            int degree = this.graph.getDegree(u);
+            if (degree == 0) {
+                // A dead end keeps its whole residual instead of restarting the walk
+                this.estimates[u] += residual;
+                continue;
+            }
+
+            this.estimates[u] += this.alpha * residual;
+            double share = (1 - this.alpha) * residual / degree;
+            for (int j = 0; j < degree; j++) {
+                int w = this.graph.getNeighbor(u, j);
+                double old = this.addResidual(w, share);
+                if (old == 0) {
+                    touched.add(w);
+                }
+                double threshold = this.epsilon * Math.max(1, this.graph.getDegree(w));
+                if (old < threshold && old + share >= threshold) {
+                    next.add(w);
+                }
+            }
+        }
+    }
+
+    // Returns the residual before the add
+    private double addResidual(int v, double amount) {
+        while (true) {
+            long bits = this.residuals.get(v);
+            double old = Double.longBitsToDouble(bits);
+            if (this.residuals.compareAndSet(v, bits, Double.doubleToRawLongBits(old + amount))) {
+                return old;
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks PersonalizedPageRank against exact power iteration on small random movie graphs.
+ * Usage: java PersonalizedPageRankCheck [graphs]
+ * For every user it compares each returned estimate with the exact value, within the
+ * epsilon * degree bound of forward push, and checks that the ranking is the exact top k up
+ * to ties closer than that bound. Exits with status 1 on the first mismatch.
+ */
+public class PersonalizedPageRankCheck {
+    private static final int K = 10;
+    private static final double EPSILON = 1e-9;
+    private static final int ITERATIONS = 500;
+
+    public static void main(String[] args) {
+        int graphs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        ForkJoinPool pool = new ForkJoinPool(2);
+        int queries = 0;
+        try {
+            for (int seed = 0; seed < graphs; seed++) {
+                UnweightedGraph<Node> graph = randomGraph(new Random(seed));
+                PersonalizedPageRank ppr = new PersonalizedPageRank(graph, PersonalizedPageRank.DEFAULT_ALPHA, EPSILON, pool);
+                for (int user = 0; user < graph.getSize(); user++) {
+                    if (graph.getKind(user) == NodeKind.USER) {
+                        check(graph, ppr, user, seed);
+                        queries++;
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println("PersonalizedPageRank matches power iteration on " + queries + " queries over "
+                + graphs + " graphs");
+    }
+
+    private static void check(UnweightedGraph<Node> graph, PersonalizedPageRank ppr, int user, int seed) {
+        double[] exact = powerIteration(graph, user, PersonalizedPageRank.DEFAULT_ALPHA);
+        int[] movies = new int[K];
+        float[] scores = new float[K];
+        int count = ppr.recommend(user, K, movies, scores);
+
+        double tolerance = 0;
+        for (int v = 0; v < graph.getSize(); v++) {
+            tolerance = Math.max(tolerance, EPSILON * graph.getDegree(v));
+        }
+        // Float scores add their own rounding on top of the push bound
+        tolerance = 2 * tolerance + 1e-6;
+
+        // Movies the walk cannot reach score 0 and are never returned
+        int reachable = 0;
+        for (int v = 0; v < graph.getSize(); v++) {
+            if (isCandidate(graph, user, v) && exact[v] > tolerance) {
+                reachable++;
+            }
+        }
+        if (count < Math.min(K, reachable) || count > K) {
+            fail(seed, user, "returned " + count + " movies with " + reachable + " reachable");
+        }
+        boolean[] returned = new boolean[graph.getSize()];
+        for (int i = 0; i < count; i++) {
+            int movie = movies[i];
+            returned[movie] = true;
+            if (!isCandidate(graph, user, movie)) {
+                fail(seed, user, "returned " + movie + ", which is not an unwatched movie");
+            }
+            if (Math.abs(scores[i] - exact[movie]) > tolerance) {
+                fail(seed, user, "estimate " + scores[i] + " for movie " + movie + " but exact " + exact[movie]);
+            }
+            if (i > 0 && exact[movies[i - 1]] < exact[movie] - tolerance) {
+                fail(seed, user, "movie " + movies[i - 1] + " ranked above " + movie + " with a lower score");
+            }
+        }
+        double lowest = count == 0 ? 0 : exact[movies[count - 1]];
+        for (int v = 0; v < graph.getSize(); v++) {
+            if (!returned[v] && isCandidate(graph, user, v) && exact[v] > lowest + tolerance) {
+                fail(seed, user, "movie " + v + " with score " + exact[v] + " left out of the top " + K);
+            }
+        }
+    }
+
+    private static boolean isCandidate(Graph<Node> graph, int user, int v) {
+        return graph.getKind(v) == NodeKind.MOVIE && !graph.hasEdge(user, v);
+    }
+
+    // p = alpha * e_source + (1 - alpha) * p P, with P the uniform walk over each vertex's edges
+    private static double[] powerIteration(Graph<Node> graph, int source, double alpha) {
+        int n = graph.getSize();
+        double[] p = new double[n];
+        double[] next = new double[n];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            Arrays.fill(next, 0);
+            next[source] = alpha;
+            for (int u = 0; u < n; u++) {
+                double share = (1 - alpha) * p[u] / graph.getDegree(u);
+                for (int i = 0; i < graph.getDegree(u); i++) {
+                    next[graph.getNeighbor(u, i)] += share;
+                }
+            }
+            double[] swap = p;
+            p = next;
+            next = swap;
+        }
+        return p;
+    }
+
+    // Genres, movies and users where every vertex has an edge, so the walk never dead-ends
+    private static UnweightedGraph<Node> randomGraph(Random random) {
+        int genres = 3 + random.nextInt(3);
+        int movies = 20 + random.nextInt(30);
+        int users = 10 + random.nextInt(20);
+        UnweightedGraph<Node> graph = new UnweightedGraph<>();
+        for (int g = 0; g < genres; g++) {
+            graph.addVertex(new Genre("G" + g, 0, 0));
+        }
+        for (int m = 0; m < movies; m++) {
+            graph.addVertex(new Movie("M" + m, "G" + m % genres, 0, 0));
+            graph.addEdge(m % genres, genres + m, EdgeLabel.IN_GENRE);
+        }
+        int firstUser = genres + movies;
+        for (int u = 0; u < users; u++) {
+            graph.addVertex(new User("U" + u, 0, 0));
+            int watches = 1 + random.nextInt(6);
+            for (int w = 0; w < watches; w++) {
+                graph.addEdge(firstUser + u, genres + random.nextInt(movies), EdgeLabel.WATCHED);
+            }
+        }
+        for (int f = 0; f < users; f++) {
+            int a = firstUser + random.nextInt(users);
+            int b = firstUser + random.nextInt(users);
+            if (a != b) {
+                graph.addEdge(a, b, EdgeLabel.KNOWS);
+            }
+        }
+        return graph;
+    }
+
+    private static void fail(int seed, int user, String message) {
+        System.out.println("Mismatch on graph " + seed + ", user " + user + ": " + message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,128 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of per-user {@link Recommender} results. It listens to the graph and, on each
+ * edge change, drops only the entries of users within {@link Recommender#DEPENDENCY_RADIUS}
+ * hops of either endpoint, so a hit always equals a fresh computation. Not thread-safe.
+ */
+public class RecommendationCache implements GraphListener {
+    private final Graph<?> graph;
+    private final Recommender recommender;
+    private final Map<Integer, Result> entries;
+    private final TraversalWorkspace workspace = new TraversalWorkspace();
+    private long hits;
+    private long misses;
+
+    public RecommendationCache(Graph<?> graph, int capacity) {
+        this.graph = graph;
+        this.recommender = new Recommender(graph);
+        this.entries = new LinkedHashMap<Integer, Result>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Integer, Result> eldest) {
+                return size() > capacity;
+            }
+        };
+        graph.addGraphListener(this);
+    }
+
+    /** Returns the top k recommendations for user, computing them on a miss. */
+    public Result get(int user, int k) {
+        Result result = this.entries.get(user);
+        if (result != null && result.k == k) {
+            this.hits++;
+            return result;
+        }
+
+        this.misses++;
+        int[] movies = new int[Math.min(k, this.graph.getSize())];
+        int count = this.recommender.recommend(user, k, movies);
+        int[] scores = new int[count];
+        for (int i = 0; i < count; i++) {
+            scores[i] = this.recommender.getScore(movies[i]);
+        }
+        result = new Result(k, Arrays.copyOf(movies, count), scores);
+        this.entries.put(user, result);
+        return result;
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public long getHitCount() {
+        return this.hits;
+    }
+
+    public long getMissCount() {
+        return this.misses;
+    }
+
+    // -----------------------------
+    // Invalidation
+    // -----------------------------
+    public void vertexAdded(int v) {
+        // A new vertex has no edges yet, so no result can depend on it
+    }
+
+    public void vertexRemoved(int v) {
+        this.entries.remove(v);
+    }
+
+    public void edgeAdded(int u, int v) {
+        this.invalidateAround(u);
+        this.invalidateAround(v);
+    }
+
+    public void edgeRemoved(int u, int v) {
+        this.invalidateAround(u);
+        this.invalidateAround(v);
+    }
+
+    public void compacted(int[] remap) {
+        this.entries.clear();
+    }
+
+    public void cleared() {
+        this.entries.clear();
+    }
+
+    private void invalidateAround(int v) {
+        if (this.entries.isEmpty()) {
+            return;
+        }
+
+        int found = this.graph.bfs(v, Recommender.DEPENDENCY_RADIUS, null, this.workspace);
+        for (int i = 0; i < found; i++) {
+            int w = this.workspace.getVisited(i);
+            if (this.graph.getKind(w) == NodeKind.USER) {
+                this.entries.remove(w);
+            }
+        }
+    }
+
+    /** Recommended movie indices, best first, with their scores. */
+    public static final class Result {
+        private final int k;
+        private final int[] movies;
+        private final int[] scores;
+
+        private Result(int k, int[] movies, int[] scores) {
+            this.k = k;
+            this.movies = movies;
+            this.scores = scores;
+        }
+
+        public int size() {
+            return this.movies.length;
+        }
+
+        public int getMovie(int i) {
+            return this.movies[i];
+        }
+
+        public int getScore(int i) {
+            return this.scores[i];
+        }
+    }
+}
@@ -1,14 +1,23 @@
 import java.util.*;
 
 public class RecommendationHandler {
+    // BFSGraphView shows four layers: the user, then three hops of movies, friends and genres
+    private static final int RECOMMENDATION_DEPTH = 3;
+    private static final int RECOMMENDATION_COUNT = 10;
+
     private final Graph<Node> graph;
     private final Main app;
     private final Scanner sc;
+    private final RecommendationCache cache;
+    private final SimilarUserIndex similarUsers;
 
-    public RecommendationHandler(Graph<Node> graph, Main app, Scanner sc) {
+    public RecommendationHandler(Graph<Node> graph, Main app, Scanner sc, RecommendationCache cache,
+                                 SimilarUserIndex similarUsers) {
         this.graph = graph;
         this.app = app;
         this.sc = sc;
+        this.cache = cache;
+        this.similarUsers = similarUsers;
     }
 
     public void handleRecommendations() {
@@ -49,20 +58,52 @@ public class RecommendationHandler {
 
         int userVertexIndex = userVertexIndices.get(choice - 1);
 
-        AbstractGraph<Node>.Tree bfsTree = graph.bfs(userVertexIndex);
+        AbstractGraph.Tree<Node> bfsTree = graph.bfs(userVertexIndex, RECOMMENDATION_DEPTH, this::isShownInLayer);
         VisualizationManager visualizationManager = new VisualizationManager(graph, app);
         visualizationManager.showMovieGraph(bfsTree, userVertexIndex);
 
-        BFSGraphView graphView = new BFSGraphView(graph, bfsTree, userVertexIndex);
-        List<Movie> recommendedMovies = graphView.getRecommendedMovies();
+        RecommendationCache.Result recommendedMovies = cache.get(userVertexIndex, RECOMMENDATION_COUNT);
 
         System.out.println("\nRecommended Movies for " + graph.getVertex(userVertexIndex).getName() + ":");
-        if (recommendedMovies.isEmpty()) {
+        if (recommendedMovies.size() == 0) {
             System.out.println("No recommendations available.");
         } else {
-            for (Movie movie : recommendedMovies) {
-                System.out.println(" - " + movie.getName() + " (" + movie.getGenre() + ")");
+            for (int i = 0; i < recommendedMovies.size(); i++) {
+                Movie movie = (Movie) graph.getVertex(recommendedMovies.getMovie(i));
+                System.out.println(" - " + movie.getName() + " (" + movie.getGenre() + ", score "
+                        + recommendedMovies.getScore(i) + ")");
+            }
+        }
+
+        // Ranked by how often a random walk from the user reaches each movie, so the whole
+        // neighborhood counts, weighted by how well connected the paths are, not just layer membership
+        List<Movie> ranked = new PersonalizedPageRank(graph).recommend(userVertexIndex, RECOMMENDATION_COUNT);
+        if (!ranked.isEmpty()) {
+            System.out.println("\nMovies ranked by personalized PageRank:");
+            for (int i = 0; i < ranked.size(); i++) {
+                System.out.println(" " + (i + 1) + ". " + ranked.get(i).getName() + " (" + ranked.get(i).getGenre() + ")");
             }
         }
+
+        List<Integer> similar = similarUsers.similarUsers(userVertexIndex, 3);
+        if (!similar.isEmpty()) {
+            System.out.println("\nUsers with similar taste:");
+            for (int other : similar) {
+                System.out.printf(" - %s (~%.0f%% overlap)%n", graph.getVertex(other).getName(),
+                        similarUsers.estimateSimilarity(userVertexIndex, other) * 100);
+            }
+        }
+    }
+
+    // Layer 2 holds watched movies and friends, layer 3 genres and friends' movies, layer 4 only movies
+    private boolean isShownInLayer(int level, int vertex) {
+        NodeKind kind = graph.getKind(vertex);
+        if (level == 2) {
+            return kind != NodeKind.USER;
+        }
+        if (level == 3) {
+            return kind == NodeKind.MOVIE;
+        }
+        return true;
     }
 }
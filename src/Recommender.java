@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ranks unwatched movies for a user without building any view. A candidate scores
+ * FRIEND_WEIGHT for each friend who watched it plus GENRE_WEIGHT for each of the user's
+ * watched movies that shares one of its genres. The candidates are the same movies
+ * BFSGraphView shows as recommendations: friends' movies and movies in the genres the
+ * user has watched.
+ * <p>
+ * Work is proportional to that neighborhood: scratch arrays are reset by bumping an epoch
+ * and the top K are kept in a {@link TopKHeap}. An instance is not
+ * thread-safe; give each thread its own.
+ */
+public class Recommender {
+    public static final int FRIEND_WEIGHT = 2;
+    public static final int GENRE_WEIGHT = 1;
+    // A result only reads edges with an endpoint at most this many hops from the user
+    public static final int DEPENDENCY_RADIUS = 2;
+
+    private final Graph<?> graph;
+
+    // A vertex's entry in scores/genreWeights is only valid if its stamp equals the epoch
+    private int[] watchedStamps = new int[0];
+    private int[] scoreStamps = new int[0];
+    private int[] scores = new int[0];
+    private int[] genreStamps = new int[0];
+    private int[] genreWeights = new int[0];
+    private int epoch;
+
+    private int[] candidates = new int[0];
+    private int candidateCount;
+    private int[] genres = new int[0];
+    private int genreCount;
+    private final TopKHeap heap = new TopKHeap();
+    private long[] keys = new long[0];
+
+    public Recommender(Graph<?> graph) {
+        this.graph = graph;
+    }
+
+    public List<Integer> recommend(int user, int k) {
+        int[] movies = new int[Math.min(k, this.graph.getSize())];
+        int count = this.recommend(user, k, movies);
+        List<Integer> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(movies[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Writes up to k recommended movie indices for user into {@code movies}, best first,
+     * and returns how many were written. Ties go to the lower vertex index.
+     */
+    public int recommend(int user, int k, int[] movies) {
+        k = Math.min(k, this.graph.getSize());
+        this.begin(this.graph.getSize(), k);
+
+        for (int i = 0; i < this.graph.getDegree(user, EdgeLabel.WATCHED); i++) {
+            this.watchedStamps[this.graph.getNeighbor(user, EdgeLabel.WATCHED, i)] = this.epoch;
+        }
+
+        for (int i = 0; i < this.graph.getDegree(user, EdgeLabel.KNOWS); i++) {
+            int friend = this.graph.getNeighbor(user, EdgeLabel.KNOWS, i);
+            if (friend == user) {
+                continue;
+            }
+            for (int j = 0; j < this.graph.getDegree(friend, EdgeLabel.WATCHED); j++) {
+                this.addScore(this.graph.getNeighbor(friend, EdgeLabel.WATCHED, j), FRIEND_WEIGHT);
+            }
+        }
+
+        // Count the user's watched movies per genre, then credit every movie in those genres
+        for (int i = 0; i < this.graph.getDegree(user, EdgeLabel.WATCHED); i++) {
+            int watched = this.graph.getNeighbor(user, EdgeLabel.WATCHED, i);
+            for (int j = 0; j < this.graph.getDegree(watched, EdgeLabel.IN_GENRE); j++) {
+                int genre = this.graph.getNeighbor(watched, EdgeLabel.IN_GENRE, j);
+                if (this.graph.getKind(genre) != NodeKind.GENRE) {
+                    continue;
+                }
+                if (this.genreStamps[genre] != this.epoch) {
+                    this.genreStamps[genre] = this.epoch;
+                    this.genreWeights[genre] = 0;
+                    this.genres[this.genreCount++] = genre;
+                }
+                this.genreWeights[genre] += GENRE_WEIGHT;
+            }
+        }
+        for (int i = 0; i < this.genreCount; i++) {
+            int genre = this.genres[i];
+            for (int j = 0; j < this.graph.getDegree(genre, EdgeLabel.IN_GENRE); j++) {
+                this.addScore(this.graph.getNeighbor(genre, EdgeLabel.IN_GENRE, j), this.genreWeights[genre]);
+            }
+        }
+
+        for (int i = 0; i < this.candidateCount; i++) {
+            int movie = this.candidates[i];
+            this.heap.offer(TopKHeap.pack(this.scores[movie], movie));
+        }
+
+        int count = this.heap.drainTo(this.keys);
+        for (int i = 0; i < count; i++) {
+            movies[i] = TopKHeap.vertex(this.keys[i]);
+        }
+        return count;
+    }
+
+    /** Score of a movie from the last {@link #recommend} call, or 0 if it was not a candidate. */
+    public int getScore(int movie) {
+        return this.scoreStamps[movie] == this.epoch ? this.scores[movie] : 0;
+    }
+
+    private void begin(int size, int k) {
+        if (this.scores.length < size) {
+            int capacity = Math.max(size, this.scores.length + (this.scores.length >> 1));
+            this.watchedStamps = new int[capacity];
+            this.scoreStamps = new int[capacity];
+            this.scores = new int[capacity];
+            this.genreStamps = new int[capacity];
+            this.genreWeights = new int[capacity];
+            this.candidates = new int[capacity];
+            this.genres = new int[capacity];
+            this.epoch = 0;
+        }
+        if (this.keys.length < k) {
+            this.keys = new long[k];
+        }
+        this.heap.reset(k);
+        if (++this.epoch == 0) {
+            Arrays.fill(this.watchedStamps, 0);
+            Arrays.fill(this.scoreStamps, 0);
+            Arrays.fill(this.genreStamps, 0);
+            this.epoch = 1;
+        }
+        this.candidateCount = 0;
+        this.genreCount = 0;
+    }
+
+    private void addScore(int movie, int weight) {
+        if (this.watchedStamps[movie] == this.epoch || this.graph.getKind(movie) != NodeKind.MOVIE) {
+            return;
+        }
+        if (this.scoreStamps[movie] != this.epoch) {
+            this.scoreStamps[movie] = this.epoch;
+            this.scores[movie] = 0;
+            this.candidates[this.candidateCount++] = movie;
+        }
+        this.scores[movie] += weight;
+    }
+}
@@ -0,0 +1,325 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Approximate "users with similar watch histories" lookup by MinHash and LSH banding.
+ * <p>
+ * Each user has a signature of bands * rows minimum hashes over the movies they watched;
+ * two users agree on one position with probability equal to the Jaccard similarity of
+ * their histories. Each band of rows values is hashed to a bucket, and a query only
+ * compares the user with the members of its buckets, so pairs above roughly
+ * (1 / bands)^(1 / rows) similarity are found without scanning every user.
+ * <p>
+ * Buckets are intrusive doubly linked lists over (user, band) slots, with bucketHeads
+ * mapping a band key to its first user, so moving a user between buckets is O(1). A new
+ * watch only lowers signature values; a removed watch rebuilds the signature from the
+ * remaining history, and only if the movie held one of its minimums.
+ * <p>
+ * Signatures are computed on the first query rather than in the constructor, and dropped
+ * again when the graph is compacted or cleared.
+ */
+public class SimilarUserIndex implements GraphListener {
+    public static final int DEFAULT_BANDS = 16;
+    public static final int DEFAULT_ROWS = 4;
+
+    private final Graph<?> graph;
+    private final int bands;
+    private final int rows;
+    private final long[] multipliers;
+    private final long[] offsets;
+    // False until the first query; listener calls are ignored until then
+    private boolean built;
+
+    // signatures[u * hashes + i] is the minimum of hash i over u's watched movies
+    private int[] signatures = new int[0];
+    private boolean[] bucketed = new boolean[0];
+    // Per (user, band) slot: its bucket key and its neighbors in the bucket list, or -1
+    private long[] slotKeys = new long[0];
+    private int[] nextInBucket = new int[0];
+    private int[] prevInBucket = new int[0];
+    private final LongIntHashMap bucketHeads = new LongIntHashMap();
+
+    private int[] stamps = new int[0];
+    private int epoch;
+    private final TopKHeap heap = new TopKHeap();
+    private long[] keys = new long[0];
+
+    public SimilarUserIndex(Graph<?> graph) {
+        this(graph, DEFAULT_BANDS, DEFAULT_ROWS, 42L);
+    }
+
+    public SimilarUserIndex(Graph<?> graph, int bands, int rows, long seed) {
+        this.graph = graph;
+        this.bands = bands;
+        this.rows = rows;
+        this.multipliers = new long[bands * rows];
+        this.offsets = new long[bands * rows];
+        Random random = new Random(seed);
+        for (int i = 0; i < this.multipliers.length; i++) {
+            this.multipliers[i] = random.nextLong() | 1L;
+            this.offsets[i] = random.nextLong();
+        }
+        graph.addGraphListener(this);
+    }
+
+    /** Estimated Jaccard similarity of the two users' watch histories. */
+    public double estimateSimilarity(int a, int b) {
+        this.ensureBuilt();
+        if (!this.bucketed[a] || !this.bucketed[b]) {
+            return 0;
+        }
+        return (double) this.agreement(a, b) / (this.bands * this.rows);
+    }
+
+    public List<Integer> similarUsers(int user, int k) {
+        int[] users = new int[Math.min(k, this.graph.getSize())];
+        int count = this.similarUsers(user, k, users);
+        List<Integer> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(users[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Writes up to k users sharing an LSH bucket with {@code user} into {@code users},
+     * highest estimated similarity first, and returns how many were written.
+     */
+    public int similarUsers(int user, int k, int[] users) {
+        this.ensureBuilt();
+        k = Math.min(k, this.graph.getSize());
+        if (this.keys.length < k) {
+            this.keys = new long[k];
+        }
+        this.heap.reset(k);
+        if (user >= this.bucketed.length || !this.bucketed[user]) {
+            return 0;
+        }
+
+        if (++this.epoch == 0) {
+            Arrays.fill(this.stamps, 0);
+            this.epoch = 1;
+        }
+        this.stamps[user] = this.epoch;
+        int hashes = this.bands * this.rows;
+        for (int band = 0; band < this.bands; band++) {
+            int other = this.bucketHeads.get(this.slotKeys[user * this.bands + band]);
+            for (; other >= 0; other = this.nextInBucket[other * this.bands + band]) {
+                if (this.stamps[other] != this.epoch) {
+                    this.stamps[other] = this.epoch;
+                    this.heap.offer(TopKHeap.pack((float) this.agreement(user, other) / hashes, other));
+                }
+            }
+        }
+
+        int count = this.heap.drainTo(this.keys);
+        for (int i = 0; i < count; i++) {
+            users[i] = TopKHeap.vertex(this.keys[i]);
+        }
+        return count;
+    }
+
+    /** Recomputes every signature and bucket from the graph's current watches. */
+    public void rebuild() {
+        int n = this.graph.getSize();
+        int hashes = this.bands * this.rows;
+        this.signatures = new int[n * hashes];
+        this.bucketed = new boolean[n];
+        this.slotKeys = new long[n * this.bands];
+        this.nextInBucket = new int[n * this.bands];
+        this.prevInBucket = new int[n * this.bands];
+        this.stamps = new int[n];
+        this.epoch = 0;
+        this.bucketHeads.clear();
+
+        for (int user = 0; user < n; user++) {
+            if (this.graph.getKind(user) == NodeKind.USER) {
+                this.recomputeSignature(user);
+            }
+        }
+        this.built = true;
+    }
+
+    private void ensureBuilt() {
+        if (!this.built) {
+            this.rebuild();
+        }
+    }
+
+    // Frees the signatures and buckets; the next query rebuilds them
+    private void discard() {
+        this.built = false;
+        this.signatures = new int[0];
+        this.bucketed = new boolean[0];
+        this.slotKeys = new long[0];
+        this.nextInBucket = new int[0];
+        this.prevInBucket = new int[0];
+        this.stamps = new int[0];
+        this.bucketHeads.clear();
+    }
+
+    // -----------------------------
+    // Incremental updates
+    // -----------------------------
+    public void vertexAdded(int v) {
+        if (!this.built || v < this.bucketed.length) {
+            return;
+        }
+        int capacity = Math.max(v + 1, this.bucketed.length << 1);
+        this.signatures = Arrays.copyOf(this.signatures, capacity * this.bands * this.rows);
+        this.bucketed = Arrays.copyOf(this.bucketed, capacity);
+        this.slotKeys = Arrays.copyOf(this.slotKeys, capacity * this.bands);
+        this.nextInBucket = Arrays.copyOf(this.nextInBucket, capacity * this.bands);
+        this.prevInBucket = Arrays.copyOf(this.prevInBucket, capacity * this.bands);
+        this.stamps = Arrays.copyOf(this.stamps, capacity);
+    }
+
+    public void vertexRemoved(int v) {
+        // A user's last watch removal left it with no signature and out of every bucket, and a
+        // movie's removal already rebuilt each signature it was the minimum of
+    }
+
+    public void edgeAdded(int u, int v) {
+        int user = this.built ? EdgeLabel.watcher(this.graph, u, v) : -1;
+        if (user < 0) {
+            return;
+        }
+        int movie = user == u ? v : u;
+        if (!this.bucketed[user]) {
+            this.recomputeSignature(user);
+            return;
+        }
+
+        int hashes = this.bands * this.rows;
+        int base = user * hashes;
+        for (int band = 0; band < this.bands; band++) {
+            boolean changed = false;
+            for (int r = 0; r < this.rows; r++) {
+                int i = band * this.rows + r;
+                int h = this.hash(i, movie);
+                if (h < this.signatures[base + i]) {
+                    this.signatures[base + i] = h;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                this.unlink(user, band);
+                this.link(user, band);
+            }
+        }
+    }
+
+    public void edgeRemoved(int u, int v) {
+        int user = this.built ? EdgeLabel.watcher(this.graph, u, v) : -1;
+        if (user < 0 || !this.bucketed[user]) {
+            return;
+        }
+        int movie = user == u ? v : u;
+
+        // The signature can only change if the movie was the minimum of some hash
+        int hashes = this.bands * this.rows;
+        int base = user * hashes;
+        for (int i = 0; i < hashes; i++) {
+            if (this.hash(i, movie) == this.signatures[base + i]) {
+                this.recomputeSignature(user);
+                return;
+            }
+        }
+    }
+
+    public void compacted(int[] remap) {
+        this.discard();
+    }
+
+    public void cleared() {
+        this.discard();
+    }
+
+    private void recomputeSignature(int user) {
+        if (this.bucketed[user]) {
+            for (int band = 0; band < this.bands; band++) {
+                this.unlink(user, band);
+            }
+            this.bucketed[user] = false;
+        }
+
+        int hashes = this.bands * this.rows;
+        int base = user * hashes;
+        Arrays.fill(this.signatures, base, base + hashes, Integer.MAX_VALUE);
+        int watched = this.graph.getDegree(user, EdgeLabel.WATCHED);
+        for (int j = 0; j < watched; j++) {
+            int movie = this.graph.getNeighbor(user, EdgeLabel.WATCHED, j);
+            for (int i = 0; i < hashes; i++) {
+                this.signatures[base + i] = Math.min(this.signatures[base + i], this.hash(i, movie));
+            }
+        }
+
+        // Users with no history would all share one bucket, so they stay out of the index
+        if (watched > 0) {
+            for (int band = 0; band < this.bands; band++) {
+                this.link(user, band);
+            }
+            this.bucketed[user] = true;
+        }
+    }
+
+    // -----------------------------
+    // Buckets
+    // -----------------------------
+    private void link(int user, int band) {
+        int slot = user * this.bands + band;
+        long key = this.bandKey(user, band);
+        int head = this.bucketHeads.get(key);
+        this.slotKeys[slot] = key;
+        this.prevInBucket[slot] = -1;
+        this.nextInBucket[slot] = head;
+        if (head >= 0) {
+            this.prevInBucket[head * this.bands + band] = user;
+        }
+        this.bucketHeads.put(key, user);
+    }
+
+    private void unlink(int user, int band) {
+        int slot = user * this.bands + band;
+        int prev = this.prevInBucket[slot];
+        int next = this.nextInBucket[slot];
+        if (next >= 0) {
+            this.prevInBucket[next * this.bands + band] = prev;
+        }
+        if (prev >= 0) {
+            this.nextInBucket[prev * this.bands + band] = next;
+        } else if (next >= 0) {
+            this.bucketHeads.put(this.slotKeys[slot], next);
+        } else {
+            this.bucketHeads.remove(this.slotKeys[slot]);
+        }
+    }
+
+    // Hash of the band's rows values, salted with the band so equal values in different bands differ
+    private long bandKey(int user, int band) {
+        int base = user * this.bands * this.rows + band * this.rows;
+        long h = (band + 1) * 0x9E3779B97F4A7C15L;
+        for (int r = 0; r < this.rows; r++) {
+            h = (h ^ this.signatures[base + r]) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return h;
+    }
+
+    private int agreement(int a, int b) {
+        int hashes = this.bands * this.rows;
+        int same = 0;
+        for (int i = 0; i < hashes; i++) {
+            if (this.signatures[a * hashes + i] == this.signatures[b * hashes + i]) {
+                same++;
+            }
+        }
+        return same;
+    }
+
+    private int hash(int i, int movie) {
+        return (int) ((this.multipliers[i] * (movie + 1L) + this.offsets[i]) >>> 33);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Bounded min-heap that keeps the k largest keys offered to it. Keys made by
+ * {@link #pack} order by score, then by lower vertex index, so the root is always the
+ * weakest entry still kept and a new key only has to beat it.
+ */
+public class TopKHeap {
+    private long[] heap = new long[0];
+    private int size;
+    private int k;
+
+    /** Empties the heap and sets how many keys it keeps. */
+    public void reset(int k) {
+        if (this.heap.length < k) {
+            this.heap = new long[k];
+        }
+        this.k = k;
+        this.size = 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void offer(long key) {
+        if (this.size < this.k) {
+            int i = this.size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (this.heap[parent] <= key) {
+                    break;
+                }
+                this.heap[i] = this.heap[parent];
+                i = parent;
+            }
+            this.heap[i] = key;
+        } else if (this.k > 0 && key > this.heap[0]) {
+            this.siftDown(key);
+        }
+    }
+
+    /** Removes and returns the smallest key kept. */
+    public long poll() {
+        long min = this.heap[0];
+        long last = this.heap[--this.size];
+        if (this.size > 0) {
+            this.siftDown(last);
+        }
+        return min;
+    }
+
+    /** Empties the heap into keys, largest first, and returns how many were written. */
+    public int drainTo(long[] keys) {
+        int count = this.size;
+        for (int i = count - 1; i >= 0; i--) {
+            keys[i] = this.poll();
+        }
+        return count;
+    }
+
+    // Places key at the root and sinks it to restore the heap
+    private void siftDown(long key) {
+        int i = 0;
+        int half = this.size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < this.size && this.heap[child + 1] < this.heap[child]) {
+                child++;
+            }
+            if (key <= this.heap[child]) {
+                break;
+            }
+            this.heap[i] = this.heap[child];
+            i = child;
+        }
+        this.heap[i] = key;
+    }
+
+    // -----------------------------
+    // Packed (score, vertex) keys
+    // -----------------------------
+    public static long pack(int score, int vertex) {
+        return (long) score << 32 | (Integer.MAX_VALUE - vertex);
+    }
+
+    /** Packs a non-negative float score; its bit pattern orders the same way as the value. */
+    public static long pack(float score, int vertex) {
+        return pack(Float.floatToIntBits(score), vertex);
+    }
+
+    public static int vertex(long key) {
+        return Integer.MAX_VALUE - (int) key;
+    }
+
+    public static int score(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static float floatScore(long key) {
+        return Float.intBitsToFloat(score(key));
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable scratch space for graph traversals, so repeated BFS/DFS calls allocate nothing
+ * once the arrays have grown to the graph's size.
+ * <p>
+ * A vertex counts as visited only if its stamp equals the current epoch, so starting a new
+ * traversal is O(1) instead of clearing V-sized arrays. Parent and level entries are only
+ * meaningful for visited vertices. A workspace must not be shared between threads or used
+ * by a nested traversal; {@link #get()} hands out one per thread.
+ */
+public class TraversalWorkspace {
+    private static final ThreadLocal<TraversalWorkspace> LOCAL = ThreadLocal.withInitial(TraversalWorkspace::new);
+
+    private int[] stamps = new int[0];
+    private int epoch;
+    private int[] parent = new int[0];
+    private int[] levels = new int[0];
+    private int[] order = new int[0];
+    private int visitedCount;
+
+    // Ring buffer for BFS; its capacity is a power of two larger than the graph
+    private int[] queue = new int[1];
+    private int head;
+    private int tail;
+
+    // Explicit DFS stack: vertex and index of its next neighbor to try
+    private int[] stack = new int[0];
+    private int[] nextNeighbor = new int[0];
+
+    public static TraversalWorkspace get() {
+        return LOCAL.get();
+    }
+
+    /** Starts a new traversal over a graph with {@code size} vertex slots. */
+    public void begin(int size) {
+        if (this.stamps.length < size) {
+            int capacity = Math.max(size, this.stamps.length + (this.stamps.length >> 1));
+            this.stamps = new int[capacity];
+            this.parent = new int[capacity];
+            this.levels = new int[capacity];
+            this.order = new int[capacity];
+            this.stack = new int[capacity];
+            this.nextNeighbor = new int[capacity];
+            this.epoch = 0;
+        }
+        if (this.queue.length <= size) {
+            int capacity = this.queue.length;
+            while (capacity <= size) {
+                capacity <<= 1;
+            }
+            this.queue = new int[capacity];
+        }
+
+        if (++this.epoch == 0) {
+            Arrays.fill(this.stamps, 0);
+            this.epoch = 1;
+        }
+        this.visitedCount = 0;
+        this.head = 0;
+        this.tail = 0;
+    }
+
+    public boolean isVisited(int v) {
+        return this.stamps[v] == this.epoch;
+    }
+
+    /** Marks v visited and appends it to the search order. */
+    public void visit(int v, int parent, int level) {
+        this.stamps[v] = this.epoch;
+        this.parent[v] = parent;
+        this.levels[v] = level;
+        this.order[this.visitedCount++] = v;
+    }
+
+    public int getVisitedCount() {
+        return this.visitedCount;
+    }
+
+    /** Returns the i-th vertex in search order. */
+    public int getVisited(int i) {
+        return this.order[i];
+    }
+
+    public int getParent(int v) {
+        return this.isVisited(v) ? this.parent[v] : -1;
+    }
+
+    public int getLevel(int v) {
+        return this.isVisited(v) ? this.levels[v] : -1;
+    }
+
+    // -----------------------------
+    // BFS queue
+    // -----------------------------
+    public void offer(int v) {
+        this.queue[this.tail] = v;
+        this.tail = (this.tail + 1) & (this.queue.length - 1);
+    }
+
+    public int poll() {
+        int v = this.queue[this.head];
+        this.head = (this.head + 1) & (this.queue.length - 1);
+        return v;
+    }
+
+    public boolean isQueueEmpty() {
+        return this.head == this.tail;
+    }
+
+    // -----------------------------
+    // DFS stack
+    // -----------------------------
+    int[] dfsStack() {
+        return this.stack;
+    }
+
+    int[] dfsNextNeighbor() {
+        return this.nextNeighbor;
+    }
+
+    // -----------------------------
+    // Copies for building a Tree
+    // -----------------------------
+    public int[] copyParents(int size) {
+        int[] result = new int[size];
+        Arrays.fill(result, -1);
+        for (int i = 0; i < this.visitedCount; i++) {
+            int v = this.order[i];
+            result[v] = this.parent[v];
+        }
+        return result;
+    }
+
+    public int[] copyLevels(int size) {
+        int[] result = new int[size];
+        Arrays.fill(result, -1);
+        for (int i = 0; i < this.visitedCount; i++) {
+            int v = this.order[i];
+            result[v] = this.levels[v];
+        }
+        return result;
+    }
+
+    public List<Integer> copySearchOrder() {
+        List<Integer> result = new ArrayList<>(this.visitedCount);
+        for (int i = 0; i < this.visitedCount; i++) {
+            result.add(this.order[i]);
+        }
+        return result;
+    }
+}
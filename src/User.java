@@ -2,4 +2,6 @@ public class User extends Node {
     public User(String name, int x, int y) {
         super(name, x, y);
     }
+
+    public NodeKind getKind() { return NodeKind.USER; }
 }
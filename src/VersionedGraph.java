@@ -0,0 +1,932 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Multi-version graph: writers change a mutable graph, and each committed batch publishes a
+ * new immutable {@link #snapshot() version} through an AtomicReference. Readers take a
+ * version and read it with no locking, and it never changes under them. Writers are only
+ * serialized with each other and never wait for readers.
+ * <p>
+ * A version stores its vertices in chunks of 1024. Each chunk holds the vertex objects,
+ * kinds, label slice ends and exact-size adjacency rows, plus a small hash table for each
+ * row of at least 16 neighbors so edge lookups stay O(1). On commit only the chunks with a
+ * vertex touched by the batch are copied, and only the touched rows in them are rebuilt.
+ * Every other chunk and row is shared with the previous version, so a commit costs
+ * O(vertices / 1024 + touched chunks * 1024 + touched edges).
+ * <p>
+ * Name lookups go through postings tagged with the versions in which the vertex was added
+ * and removed, so every version answers as of its own commit. A retired posting is dropped
+ * once every version old enough to see it has been garbage collected, so removals do not
+ * leave postings behind. Compaction and clear renumber everything; they republish every
+ * chunk and start a new posting table, and older versions keep the old table.
+ * <p>
+ * Calls made on this object from the thread inside a batch, including from listeners, see
+ * the uncommitted state. Other threads see the latest version, which may change between
+ * two calls; use {@link #snapshot()} for a consistent view.
+ * <p>
+ * A versioned graph can also start from an immutable base, such as a memory-mapped
+ * {@link CsrGraph}, that readers use as version 0. The mutable graph is only built when the
+ * first batch starts, so a graph that is only read is never copied.
+ */
+public class VersionedGraph<V> implements Graph<V> {
+    /** A compound update run as one batch; see {@link #batch}. */
+    public interface Action<E extends Exception> {
+        void run() throws E;
+    }
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK - 1;
+    private static final int LABELS = EdgeLabel.COUNT;
+    private static final int[] NO_NEIGHBORS = new int[0];
+    // Rows shorter than this are scanned; longer ones get a hash table of positions
+    private static final int ROW_INDEX_MIN_DEGREE = 16;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // The latest Version, or the base graph until the first batch commits
+    private final AtomicReference<Graph<V>> current = new AtomicReference<>();
+    // Run after each outermost batch, outside writeLock, so concurrent writers share its cost
+    private volatile Action<IOException> durability;
+
+    // Guarded by writeLock: the mutable graph (null until materialized from the base), the
+    // listeners registered before then, what the pending batch changed, and its number
+    private AbstractGraph<V> graph;
+    private Supplier<? extends AbstractGraph<V>> materializer;
+    private final List<GraphListener> pendingListeners = new ArrayList<>();
+    private final BitSet dirty = new BitSet();
+    private boolean allDirty;
+    private NameTable names;
+    private long nextNumber;
+    // Also writer only: weak references to the published versions, oldest first, so name
+    // postings can be trimmed once the versions that see them have been collected
+    private final ArrayDeque<PublishedVersion> published = new ArrayDeque<>();
+    private int publishedAfterSweep;
+
+    public VersionedGraph(AbstractGraph<V> graph) {
+        this.graph = graph;
+        this.names = NameTable.build(graph, 0);
+        Version<V> first = Version.build(graph, 0, this.names);
+        this.current.set(first);
+        this.track(first);
+        this.nextNumber = 1;
+        graph.addGraphListener(new ChangeTracker());
+    }
+
+    /**
+     * Starts from base, which must not change, as version 0. The first batch calls
+     * materializer for the mutable graph, which must hold the same vertices at the same
+     * indices and the same edges as base; listeners added before then are moved onto it.
+     */
+    public VersionedGraph(Graph<V> base, Supplier<? extends AbstractGraph<V>> materializer) {
+        this.current.set(base);
+        this.materializer = materializer;
+        this.nextNumber = 1;
+    }
+
+    /** The latest committed version. It is immutable and safe to read from any thread. */
+    public Graph<V> snapshot() {
+        return this.current.get();
+    }
+
+    public long getVersionNumber() {
+        Graph<V> latest = this.current.get();
+        return latest instanceof Version ? ((Version<V>) latest).number : 0;
+    }
+
+    /**
+     * Makes every outermost batch that completes normally run sync, such as
+     * {@link WriteAheadLog#sync()}, before it returns, so an acknowledged edit is durable.
+     * A failed sync is thrown as an UncheckedIOException. Null turns this off.
+     */
+    public void setDurability(Action<IOException> sync) {
+        this.durability = sync;
+    }
+
+    /**
+     * Runs action as one batch: its changes are published together as a single version when
+     * it returns, or as far as they got if it throws. Batches nest; the outermost one commits.
+     */
+    public <E extends Exception> void batch(Action<E> action) throws E {
+        this.writeLock.lock();
+        boolean outermost = this.writeLock.getHoldCount() == 1;
+        try {
+            if (this.graph == null) {
+                this.materialize();
+            }
+            action.run();
+        } finally {
+            try {
+                if (outermost) {
+                    this.publish();
+                }
+            } finally {
+                this.writeLock.unlock();
+            }
+        }
+
+        Action<IOException> sync = this.durability;
+        if (outermost && sync != null) {
+            try {
+                sync.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not make the batch durable", e);
+            }
+        }
+    }
+
+    // Builds the mutable graph from the base; readers keep the base until the batch commits
+    private void materialize() {
+        AbstractGraph<V> graph = this.materializer.get();
+        this.graph = graph;
+        this.materializer = null;
+        this.names = NameTable.build(graph, 0);
+        this.allDirty = true;
+        graph.addGraphListener(new ChangeTracker());
+        for(GraphListener listener : this.pendingListeners) {
+            graph.addGraphListener(listener);
+        }
+        this.pendingListeners.clear();
+    }
+
+    private void publish() {
+        if (!this.allDirty && this.dirty.isEmpty()) {
+            return;
+        }
+        Version<V> next = this.allDirty
+                ? Version.build(this.graph, this.nextNumber, this.names)
+                : ((Version<V>) this.current.get()).withChanges(this.graph, this.dirty, this.nextNumber, this.names);
+        this.dirty.clear();
+        this.allDirty = false;
+        ++this.nextNumber;
+        this.current.set(next);
+        this.track(next);
+    }
+
+    // Remembers a newly published version, then drops the name postings that only versions
+    // older than every reachable one could see
+    private void track(Version<V> version) {
+        this.published.addLast(new PublishedVersion(version));
+        while(this.published.peekFirst().get() == null) {
+            this.published.pollFirst();
+        }
+        // Collected versions queued behind a long-lived one are swept out now and then
+        if (this.published.size() > 2 * this.publishedAfterSweep + 16) {
+            this.published.removeIf((ref) -> ref.get() == null);
+            this.publishedAfterSweep = this.published.size();
+        }
+        this.names.trim(this.published.peekFirst().number);
+    }
+
+    private static final class PublishedVersion extends WeakReference<Version<?>> {
+        final long number;
+
+        PublishedVersion(Version<?> version) {
+            super(version);
+            this.number = version.number;
+        }
+    }
+
+    // Inside a batch the writer sees its own changes; everyone else sees the latest version
+    private Graph<V> reader() {
+        return this.writeLock.isHeldByCurrentThread() ? this.graph : this.current.get();
+    }
+
+    /** Records which vertices the pending batch touched; runs on the writer under writeLock. */
+    private final class ChangeTracker implements GraphListener {
+        public void vertexAdded(int v) {
+            VersionedGraph.this.dirty.set(v);
+            VersionedGraph.this.names.add(VersionedGraph.this.graph.getVertex(v), v, VersionedGraph.this.nextNumber);
+        }
+
+        public void vertexRemoved(int v) {
+            // Its posting is retired by removeVertex, which still has the vertex object
+            VersionedGraph.this.dirty.set(v);
+        }
+
+        public void edgeAdded(int u, int v) {
+            VersionedGraph.this.dirty.set(u);
+            VersionedGraph.this.dirty.set(v);
+        }
+
+        public void edgeRemoved(int u, int v) {
+            VersionedGraph.this.dirty.set(u);
+            VersionedGraph.this.dirty.set(v);
+        }
+
+        public void compacted(int[] remap) {
+            VersionedGraph.this.allDirty = true;
+            VersionedGraph.this.names = NameTable.build(VersionedGraph.this.graph, VersionedGraph.this.nextNumber);
+        }
+
+        public void cleared() {
+            VersionedGraph.this.allDirty = true;
+            VersionedGraph.this.names = new NameTable();
+        }
+    }
+
+    // -----------------------------
+    // Reads
+    // -----------------------------
+    public int getSize() {
+        return this.reader().getSize();
+    }
+
+    public int getVertexCount() {
+        return this.reader().getVertexCount();
+    }
+
+    public boolean hasVertex(int index) {
+        return this.reader().hasVertex(index);
+    }
+
+    public List<V> getVertices() {
+        return this.reader().getVertices();
+    }
+
+    public V getVertex(int index) {
+        return this.reader().getVertex(index);
+    }
+
+    public int getIndex(V v) {
+        return this.reader().getIndex(v);
+    }
+
+    public int findIndex(String name) {
+        return this.reader().findIndex(name);
+    }
+
+    public int findIndex(Class<? extends V> type, String name) {
+        return this.reader().findIndex(type, name);
+    }
+
+    public List<Integer> getNeighbors(int index) {
+        return this.reader().getNeighbors(index);
+    }
+
+    public int getNeighbor(int v, int i) {
+        return this.reader().getNeighbor(v, i);
+    }
+
+    public void forEachNeighbor(int v, IntConsumer action) {
+        this.reader().forEachNeighbor(v, action);
+    }
+
+    public int neighborsInto(int v, int[] buffer) {
+        return this.reader().neighborsInto(v, buffer);
+    }
+
+    public int getDegree(int v) {
+        return this.reader().getDegree(v);
+    }
+
+    public NodeKind getKind(int v) {
+        return this.reader().getKind(v);
+    }
+
+    public int getDegree(int v, EdgeLabel label) {
+        return this.reader().getDegree(v, label);
+    }
+
+    public int getNeighbor(int v, EdgeLabel label, int i) {
+        return this.reader().getNeighbor(v, label, i);
+    }
+
+    public EdgeLabel getLabel(int u, int v) {
+        return this.reader().getLabel(u, v);
+    }
+
+    public boolean hasEdge(int u, int v) {
+        return this.reader().hasEdge(u, v);
+    }
+
+    public void printEdges() {
+        this.reader().printEdges();
+    }
+
+    public AbstractGraph.Tree<V> dfs(int v) {
+        return this.reader().dfs(v);
+    }
+
+    public AbstractGraph.Tree<V> bfs(int v) {
+        return this.reader().bfs(v);
+    }
+
+    public AbstractGraph.Tree<V> bfs(int v, int maxDepth) {
+        return this.reader().bfs(v, maxDepth);
+    }
+
+    public AbstractGraph.Tree<V> bfs(int v, int maxDepth, LevelFilter filter) {
+        return this.reader().bfs(v, maxDepth, filter);
+    }
+
+    public AbstractGraph.Tree<V> bfs(int v, int maxDepth, Set<EdgeLabel> relations, LevelFilter filter) {
+        return this.reader().bfs(v, maxDepth, relations, filter);
+    }
+
+    public int dfs(int v, TraversalWorkspace workspace) {
+        return this.reader().dfs(v, workspace);
+    }
+
+    public int bfs(int v, int maxDepth, LevelFilter filter, TraversalWorkspace workspace) {
+        return this.reader().bfs(v, maxDepth, filter, workspace);
+    }
+
+    public int bfs(int v, int maxDepth, Set<EdgeLabel> relations, LevelFilter filter, TraversalWorkspace workspace) {
+        return this.reader().bfs(v, maxDepth, relations, filter, workspace);
+    }
+
+    // -----------------------------
+    // Writes, each its own batch unless inside one
+    // -----------------------------
+    public void clear() {
+        this.batch(() -> this.graph.clear());
+    }
+
+    public void addVertex(V vertex) {
+        this.batch(() -> this.graph.addVertex(vertex));
+    }
+
+    public void addEdge(int u, int v) {
+        this.batch(() -> this.graph.addEdge(u, v));
+    }
+
+    public void addEdge(int u, int v, EdgeLabel label) {
+        this.batch(() -> this.graph.addEdge(u, v, label));
+    }
+
+    public void addEdges(int[] us, int[] vs) {
+        this.batch(() -> this.graph.addEdges(us, vs));
+    }
+
+    public void addEdges(int[] us, int[] vs, EdgeLabel label) {
+        this.batch(() -> this.graph.addEdges(us, vs, label));
+    }
+
+    public boolean removeEdge(int u, int v) {
+        boolean[] removed = new boolean[1];
+        this.batch(() -> removed[0] = this.graph.removeEdge(u, v));
+        return removed[0];
+    }
+
+    public boolean removeVertex(V vertex) {
+        boolean[] removed = new boolean[1];
+        this.batch(() -> {
+            int index = this.graph.getIndex(vertex);
+            removed[0] = this.graph.removeVertex(vertex);
+            if (removed[0]) {
+                this.names.remove(vertex, index, this.nextNumber);
+            }
+        });
+        return removed[0];
+    }
+
+    // Listening alone does not materialize the graph; until then listeners wait in a list
+    public void addGraphListener(GraphListener listener) {
+        this.writeLock.lock();
+        try {
+            if (this.graph == null) {
+                this.pendingListeners.add(listener);
+            } else {
+                this.graph.addGraphListener(listener);
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    public void removeGraphListener(GraphListener listener) {
+        this.writeLock.lock();
+        try {
+            if (this.graph == null) {
+                this.pendingListeners.remove(listener);
+            } else {
+                this.graph.removeGraphListener(listener);
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    // -----------------------------
+    // Versions
+    // -----------------------------
+    private static final class Version<V> implements Graph<V>, GraphTraversal.Rows {
+        final long number;
+        private final int size;
+        private final int vertexCount;
+        private final Object[][] vertexChunks;
+        private final byte[][] kindChunks;
+        private final int[][] labelEndChunks;
+        private final int[][][] rowChunks;
+        // Per row, null or an open-addressing table of (position in the row + 1), 0 when empty
+        private final int[][][] rowIndexChunks;
+        private final NameTable names;
+
+        private Version(long number, int size, int vertexCount, Object[][] vertexChunks, byte[][] kindChunks,
+                        int[][] labelEndChunks, int[][][] rowChunks, int[][][] rowIndexChunks, NameTable names) {
+            this.number = number;
+            this.size = size;
+            this.vertexCount = vertexCount;
+            this.vertexChunks = vertexChunks;
+            this.kindChunks = kindChunks;
+            this.labelEndChunks = labelEndChunks;
+            this.rowChunks = rowChunks;
+            this.rowIndexChunks = rowIndexChunks;
+            this.names = names;
+        }
+
+        static <V> Version<V> build(AbstractGraph<V> graph, long number, NameTable names) {
+            int n = graph.getSize();
+            int chunks = (n + CHUNK - 1) >> CHUNK_BITS;
+            Version<V> version = new Version<>(number, n, graph.getVertexCount(), new Object[chunks][],
+                    new byte[chunks][], new int[chunks][], new int[chunks][][], new int[chunks][][], names);
+            for(int c = 0; c < chunks; ++c) {
+                version.newChunk(c);
+            }
+            for(int u = 0; u < n; ++u) {
+                version.copyVertex(graph, u);
+            }
+            return version;
+        }
+
+        // A new version sharing every chunk except those holding a dirty vertex
+        Version<V> withChanges(AbstractGraph<V> graph, BitSet dirty, long number, NameTable names) {
+            int n = graph.getSize();
+            int chunks = (n + CHUNK - 1) >> CHUNK_BITS;
+            int oldChunks = this.rowChunks.length;
+            Version<V> version = new Version<>(number, n, graph.getVertexCount(),
+                    Arrays.copyOf(this.vertexChunks, chunks), Arrays.copyOf(this.kindChunks, chunks),
+                    Arrays.copyOf(this.labelEndChunks, chunks), Arrays.copyOf(this.rowChunks, chunks),
+                    Arrays.copyOf(this.rowIndexChunks, chunks), names);
+
+            // Every new vertex is dirty, so each chunk past the old end gets created here
+            int copied = -1;
+            for(int u = dirty.nextSetBit(0); u >= 0 && u < n; u = dirty.nextSetBit(u + 1)) {
+                int c = u >> CHUNK_BITS;
+                if (c != copied) {
+                    if (c < oldChunks) {
+                        version.vertexChunks[c] = this.vertexChunks[c].clone();
+                        version.kindChunks[c] = this.kindChunks[c].clone();
+                        version.labelEndChunks[c] = this.labelEndChunks[c].clone();
+                        version.rowChunks[c] = this.rowChunks[c].clone();
+                        version.rowIndexChunks[c] = this.rowIndexChunks[c].clone();
+                    } else {
+                        version.newChunk(c);
+                    }
+                    copied = c;
+                }
+                version.copyVertex(graph, u);
+            }
+            return version;
+        }
+
+        private void newChunk(int c) {
+            this.vertexChunks[c] = new Object[CHUNK];
+            this.kindChunks[c] = new byte[CHUNK];
+            this.labelEndChunks[c] = new int[CHUNK * LABELS];
+            int[][] rows = new int[CHUNK][];
+            Arrays.fill(rows, NO_NEIGHBORS);
+            this.rowChunks[c] = rows;
+            this.rowIndexChunks[c] = new int[CHUNK][];
+        }
+
+        private void copyVertex(AbstractGraph<V> graph, int u) {
+            int c = u >> CHUNK_BITS;
+            int i = u & CHUNK_MASK;
+            int degree = graph.degrees[u];
+            this.vertexChunks[c][i] = graph.vertices.get(u);
+            this.kindChunks[c][i] = graph.kinds[u];
+            System.arraycopy(graph.labelEnds, u * LABELS, this.labelEndChunks[c], i * LABELS, LABELS);
+            int[] row = degree == 0 ? NO_NEIGHBORS : Arrays.copyOf(graph.neighbors[u], degree);
+            this.rowChunks[c][i] = row;
+            this.rowIndexChunks[c][i] = degree >= ROW_INDEX_MIN_DEGREE ? indexRow(row) : null;
+        }
+
+        // Built with the row, so a commit still costs O(touched edges); at most 2/3 full
+        private static int[] indexRow(int[] row) {
+            int[] table = new int[Integer.highestOneBit(row.length + (row.length >> 1)) << 1];
+            int mask = table.length - 1;
+            for(int i = 0; i < row.length; ++i) {
+                int slot = hash(row[i]) & mask;
+                while(table[slot] != 0) {
+                    slot = slot + 1 & mask;
+                }
+                table[slot] = i + 1;
+            }
+            return table;
+        }
+
+        private static int hash(int v) {
+            int h = v * 0x9E3779B9;
+            return h ^ h >>> 16;
+        }
+
+        // Position of v in u's row, or -1
+        private int positionOf(int u, int v) {
+            int[] row = this.row(u);
+            int[] table = this.rowIndexChunks[u >> CHUNK_BITS][u & CHUNK_MASK];
+            if (table == null) {
+                for(int i = 0; i < row.length; ++i) {
+                    if (row[i] == v) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+            int mask = table.length - 1;
+            for(int slot = hash(v) & mask; table[slot] != 0; slot = slot + 1 & mask) {
+                if (row[table[slot] - 1] == v) {
+                    return table[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        private int[] row(int u) {
+            if (u < 0 || u >= this.size) {
+                throw new IndexOutOfBoundsException("Index: " + u + ", Size: " + this.size);
+            }
+            return this.rowChunks[u >> CHUNK_BITS][u & CHUNK_MASK];
+        }
+
+        // Rows, for the shared traversals
+        public int degree(int u) {
+            return this.row(u).length;
+        }
+
+        public int neighbor(int u, int i) {
+            return this.row(u)[i];
+        }
+
+        public int labelEnd(int u, int label) {
+            return this.labelEndChunks[u >> CHUNK_BITS][(u & CHUNK_MASK) * LABELS + label];
+        }
+
+        private int labelStart(int u, int label) {
+            return label == 0 ? 0 : this.labelEnd(u, label - 1);
+        }
+
+        public int getSize() {
+            return this.size;
+        }
+
+        public int getVertexCount() {
+            return this.vertexCount;
+        }
+
+        public boolean hasVertex(int index) {
+            return index >= 0 && index < this.size && this.getVertex(index) != null;
+        }
+
+        public List<V> getVertices() {
+            return new AbstractList<V>() {
+                public V get(int i) {
+                    return Version.this.getVertex(i);
+                }
+
+                public int size() {
+                    return Version.this.size;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getVertex(int index) {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+            }
+            return (V) this.vertexChunks[index >> CHUNK_BITS][index & CHUNK_MASK];
+        }
+
+        public int getIndex(V v) {
+            return this.names.find(this, v);
+        }
+
+        public int findIndex(String name) {
+            return this.names.find(this, Object.class, name);
+        }
+
+        public int findIndex(Class<? extends V> type, String name) {
+            return this.names.find(this, type, name);
+        }
+
+        public List<Integer> getNeighbors(int index) {
+            final int[] row = this.row(index);
+            return new AbstractList<Integer>() {
+                public Integer get(int i) {
+                    return row[i];
+                }
+
+                public int size() {
+                    return row.length;
+                }
+            };
+        }
+
+        public int getNeighbor(int v, int i) {
+            int[] row = this.row(v);
+            if (i >= row.length) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Degree: " + row.length);
+            }
+            return row[i];
+        }
+
+        public void forEachNeighbor(int v, IntConsumer action) {
+            for(int w : this.row(v)) {
+                action.accept(w);
+            }
+        }
+
+        public int neighborsInto(int v, int[] buffer) {
+            int[] row = this.row(v);
+            System.arraycopy(row, 0, buffer, 0, Math.min(row.length, buffer.length));
+            return row.length;
+        }
+
+        public int getDegree(int v) {
+            return this.row(v).length;
+        }
+
+        public NodeKind getKind(int v) {
+            this.row(v);
+            return NodeKind.of(this.kindChunks[v >> CHUNK_BITS][v & CHUNK_MASK]);
+        }
+
+        public int getDegree(int v, EdgeLabel label) {
+            this.row(v);
+            int l = label.ordinal();
+            return this.labelEnd(v, l) - this.labelStart(v, l);
+        }
+
+        public int getNeighbor(int v, EdgeLabel label, int i) {
+            if (i >= this.getDegree(v, label)) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Degree: " + this.getDegree(v, label));
+            }
+            return this.row(v)[this.labelStart(v, label.ordinal()) + i];
+        }
+
+        public EdgeLabel getLabel(int u, int v) {
+            int pos = this.positionOf(u, v);
+            if (pos < 0) {
+                return null;
+            }
+            int l = 0;
+            while(pos >= this.labelEnd(u, l)) {
+                ++l;
+            }
+            return EdgeLabel.of(l);
+        }
+
+        public boolean hasEdge(int u, int v) {
+            return this.positionOf(u, v) >= 0;
+        }
+
+        public void printEdges() {
+            for(int u = 0; u < this.size; ++u) {
+                if (!this.hasVertex(u)) {
+                    continue;
+                }
+                System.out.print(this.getVertex(u) + " (" + u + "): ");
+                for(int w : this.row(u)) {
+                    System.out.print("(" + this.getVertex(u) + ", " + this.getVertex(w) + ") ");
+                }
+                System.out.println();
+            }
+        }
+
+        public void clear() {
+            throw new UnsupportedOperationException("Graph versions are immutable");
+        }
+
+        public void addVertex(V vertex) {
+            throw new UnsupportedOperationException("Graph versions are immutable");
+        }
+
+        public void addEdge(int u, int v) {
+            throw new UnsupportedOperationException("Graph versions are immutable");
+        }
+
+        public void addEdge(int u, int v, EdgeLabel label) {
+            throw new UnsupportedOperationException("Graph versions are immutable");
+        }
+
+        public void addEdges(int[] us, int[] vs) {
+            throw new UnsupportedOperationException("Graph versions are immutable");
+        }
+
+        public void addEdges(int[] us, int[] vs, EdgeLabel label) {
+            throw new UnsupportedOperationException("Graph versions are immutable");
+        }
+
+        public boolean removeEdge(int u, int v) {
+            throw new UnsupportedOperationException("Graph versions are immutable");
+        }
+
+        public boolean removeVertex(V vertex) {
+            throw new UnsupportedOperationException("Graph versions are immutable");
+        }
+
+        // A version never changes, so there is nothing to report
+        public void addGraphListener(GraphListener listener) {
+        }
+
+        public void removeGraphListener(GraphListener listener) {
+        }
+
+        public AbstractGraph.Tree<V> dfs(int v) {
+            TraversalWorkspace workspace = TraversalWorkspace.get();
+            this.dfs(v, workspace);
+            return GraphTraversal.tree(v, this.size, workspace, this);
+        }
+
+        public int dfs(int v, TraversalWorkspace workspace) {
+            return GraphTraversal.dfs(this, this.size, v, workspace);
+        }
+
+        public AbstractGraph.Tree<V> bfs(int v) {
+            return this.bfs(v, Integer.MAX_VALUE, null);
+        }
+
+        public AbstractGraph.Tree<V> bfs(int v, int maxDepth) {
+            return this.bfs(v, maxDepth, null);
+        }
+
+        public AbstractGraph.Tree<V> bfs(int v, int maxDepth, LevelFilter filter) {
+            TraversalWorkspace workspace = TraversalWorkspace.get();
+            this.bfs(v, maxDepth, filter, workspace);
+            return GraphTraversal.tree(v, this.size, workspace, this);
+        }
+
+        public AbstractGraph.Tree<V> bfs(int v, int maxDepth, Set<EdgeLabel> relations, LevelFilter filter) {
+            TraversalWorkspace workspace = TraversalWorkspace.get();
+            this.bfs(v, maxDepth, relations, filter, workspace);
+            return GraphTraversal.tree(v, this.size, workspace, this);
+        }
+
+        public int bfs(int v, int maxDepth, LevelFilter filter, TraversalWorkspace workspace) {
+            return GraphTraversal.bfs(this, this.size, v, maxDepth, GraphTraversal.ALL_RELATIONS, filter, workspace);
+        }
+
+        public int bfs(int v, int maxDepth, Set<EdgeLabel> relations, LevelFilter filter, TraversalWorkspace workspace) {
+            return GraphTraversal.bfs(this, this.size, v, maxDepth, GraphTraversal.relationMask(relations), filter,
+                    workspace);
+        }
+    }
+
+    // -----------------------------
+    // Name lookups across versions
+    // -----------------------------
+
+    /** A vertex index under one name, visible to versions in [added, removed). */
+    private static final class Posting {
+        final Object vertex;
+        final int index;
+        final long added;
+        volatile long removed = Long.MAX_VALUE;
+
+        Posting(Object vertex, int index, long added) {
+            this.vertex = vertex;
+            this.index = index;
+            this.added = added;
+        }
+    }
+
+    /**
+     * Name -> postings, shared by every version from one compaction to the next. Names are
+     * normalized by {@link NameIndex#key}. Vertices that are not {@link Displayable} have no
+     * name and are posted under themselves, so getIndex is a lookup for every vertex. Only the
+     * writer adds or retires postings, and it does so before publishing the version that first
+     * sees the change, so readers of older versions are unaffected. A retired posting is
+     * dropped by {@link #trim} once every version that could see it is gone.
+     */
+    private static final class NameTable {
+        private final ConcurrentHashMap<String, Posting[]> postings = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Object, Posting[]> unnamed = new ConcurrentHashMap<>();
+        // Writer only: retired postings in the order they were retired, so by version number
+        private final ArrayDeque<Posting> retired = new ArrayDeque<>();
+
+        static NameTable build(AbstractGraph<?> graph, long number) {
+            NameTable table = new NameTable();
+            for(int u = 0; u < graph.getSize(); ++u) {
+                table.add(graph.getVertex(u), u, number);
+            }
+            return table;
+        }
+
+        void add(Object vertex, int index, long number) {
+            if (vertex == null) {
+                return;
+            }
+            Posting[] added = {new Posting(vertex, index, number)};
+            String key = NameIndex.key(vertex);
+            if (key != null) {
+                this.postings.merge(key, added, NameTable::append);
+            } else if (!(vertex instanceof Displayable)) {
+                this.unnamed.merge(vertex, added, NameTable::append);
+            }
+        }
+
+        private static Posting[] append(Posting[] old, Posting[] added) {
+            Posting[] merged = Arrays.copyOf(old, old.length + added.length);
+            System.arraycopy(added, 0, merged, old.length, added.length);
+            return merged;
+        }
+
+        // The postings vertex would be found under, or null
+        private Posting[] postingsOf(Object vertex) {
+            if (vertex == null) {
+                return null;
+            }
+            String key = NameIndex.key(vertex);
+            if (key != null) {
+                return this.postings.get(key);
+            }
+            return vertex instanceof Displayable ? null : this.unnamed.get(vertex);
+        }
+
+        void remove(Object vertex, int index, long number) {
+            Posting[] list = this.postingsOf(vertex);
+            if (list == null) {
+                return;
+            }
+            for(Posting posting : list) {
+                if (posting.index == index && posting.removed == Long.MAX_VALUE) {
+                    posting.removed = number;
+                    this.retired.addLast(posting);
+                }
+            }
+        }
+
+        /** Drops the retired postings that no version numbered oldestLive or later can see. */
+        void trim(long oldestLive) {
+            while(!this.retired.isEmpty() && this.retired.peekFirst().removed <= oldestLive) {
+                Posting posting = this.retired.pollFirst();
+                String key = NameIndex.key(posting.vertex);
+                if (key != null) {
+                    this.postings.computeIfPresent(key, (k, list) -> without(list, posting));
+                } else {
+                    this.unnamed.computeIfPresent(posting.vertex, (k, list) -> without(list, posting));
+                }
+            }
+        }
+
+        // A copy of list without posting, or null, which drops the mapping, if nothing is left
+        private static Posting[] without(Posting[] list, Posting posting) {
+            Posting[] rest = new Posting[list.length - 1];
+            int count = 0;
+            for(Posting other : list) {
+                if (other != posting) {
+                    if (count == rest.length) {
+                        return list;
+                    }
+                    rest[count++] = other;
+                }
+            }
+            return count == 0 ? null : rest;
+        }
+
+        // Lowest index of a vertex named 'name' whose class is type or a subtype, as of version
+        int find(Version<?> version, Class<?> type, String name) {
+            Posting[] list = name == null ? null : this.postings.get(NameIndex.normalize(name));
+            if (list == null) {
+                return -1;
+            }
+            int best = -1;
+            for(Posting posting : list) {
+                if (posting.added <= version.number && version.number < posting.removed
+                        && (best < 0 || posting.index < best) && type.isInstance(version.getVertex(posting.index))) {
+                    best = posting.index;
+                }
+            }
+            return best;
+        }
+
+        int find(Version<?> version, Object vertex) {
+            Posting[] list = this.postingsOf(vertex);
+            if (list == null) {
+                return -1;
+            }
+            int best = -1;
+            for(Posting posting : list) {
+                if (posting.added <= version.number && version.number < posting.removed
+                        && (best < 0 || posting.index < best) && vertex.equals(version.getVertex(posting.index))) {
+                    best = posting.index;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -2,10 +2,15 @@ import javafx.application.Platform;
 import javafx.scene.Scene;
 
 public class VisualizationManager {
+    // Views render on the FX thread while the console thread keeps editing, so they are given
+    // a VersionedGraph snapshot, which never changes, rather than a lock around the live graph
     private final Graph<Node> graph;
     private final Main app;
 
     public VisualizationManager(Graph<Node> graph, Main app) {
+        if (graph instanceof VersionedGraph || graph instanceof AbstractGraph) {
+            throw new IllegalArgumentException("Views need an immutable graph, such as VersionedGraph.snapshot()");
+        }
         this.graph = graph;
         this.app = app;
     }
@@ -19,7 +24,7 @@ public class VisualizationManager {
         });
     }
 
-    public void showMovieGraph(AbstractGraph<Node>.Tree bfsTree, int userId) {
+    public void showMovieGraph(AbstractGraph.Tree<Node> bfsTree, int userId) {
         Platform.runLater(() -> {
             Scene scene = new Scene(new BFSGraphView(graph, bfsTree, userId), 750, 450);
             app.getPrimaryStage().setTitle("Movie Network - BFS Visualization");
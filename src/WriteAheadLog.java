@@ -0,0 +1,398 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of graph mutations, so edits survive a crash without rewriting the snapshot.
+ * <p>
+ * The log listens to the graph and encodes every change as a record
+ * [length, CRC32, sequence, type, fields]. Records collect in memory until a commit writes
+ * them with one sequential write and one force, however many they are. {@link #sync()}
+ * commits and returns once every record appended before the call is on disk; callers that
+ * sync concurrently share one force, so this is group commit. {@link VersionedGraph} syncs
+ * after every batch once given this log's sync as its durability hook, so its edits are
+ * durable before they return. Edits made on the graph without a sync are only committed by a
+ * background thread every {@code commitIntervalMillis}, and a crash loses up to that much.
+ * <p>
+ * {@link #checkpoint()} writes a {@link GraphSnapshot} tagged with the last sequence, then
+ * empties the log. The snapshot keeps removed vertices as tombstones, so indices held by
+ * callers stay valid across a checkpoint; compaction only happens when asked for. Recovery
+ * loads the snapshot and replays only records with a later sequence, so a crash between the
+ * two steps replays nothing twice. A torn record at the end of the log fails its checksum or
+ * claims more bytes than are left, and the log is truncated before it.
+ * <p>
+ * Replay repeats the original calls, including the edge removals reported before a vertex
+ * removal and any explicit compaction, so vertex indices come out as they were.
+ */
+public class WriteAheadLog implements GraphListener, Closeable {
+    public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 10;
+    public static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+
+    private static final int MAGIC = 0x4D56574C;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte ADD_VERTEX = 1;
+    private static final byte REMOVE_VERTEX = 2;
+    private static final byte ADD_EDGE = 3;
+    private static final byte REMOVE_EDGE = 4;
+    private static final byte COMPACT = 5;
+    private static final byte CLEAR = 6;
+
+    private final AbstractGraph<Node> graph;
+    private final Path snapshotFile;
+    private final FileChannel channel;
+    private final long checkpointBytes;
+    private final ScheduledExecutorService committer;
+
+    // Guarded by 'this': records not yet written, and the last sequence handed out
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(this.record);
+    private final CRC32 crc = new CRC32();
+    private long sequence;
+    // Guarded by commitLock
+    private final Object commitLock = new Object();
+    private long logBytes;
+
+    private WriteAheadLog(AbstractGraph<Node> graph, Path snapshotFile, Path logFile, long sequence,
+                          long commitIntervalMillis, long checkpointBytes) throws IOException {
+        this.graph = graph;
+        this.snapshotFile = snapshotFile;
+        this.sequence = sequence;
+        this.checkpointBytes = checkpointBytes;
+        this.channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (this.channel.size() < HEADER_SIZE) {
+            this.channel.truncate(0);
+            this.writeFully(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip());
+            this.channel.force(true);
+        }
+        this.logBytes = this.channel.size();
+        this.channel.position(this.logBytes);
+
+        this.committer = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread thread = new Thread(r, "wal-committer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.committer.scheduleWithFixedDelay(this::commitQuietly, commitIntervalMillis, commitIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        graph.addGraphListener(this);
+    }
+
+    /**
+     * Makes the current contents of graph the baseline: writes a snapshot and starts an empty log.
+     * Refuses to replace a snapshot or log that already exists, since that would discard saved edits.
+     */
+    public static WriteAheadLog create(AbstractGraph<Node> graph, Path snapshotFile, Path logFile) throws IOException {
+        for (Path file : new Path[] {snapshotFile, logFile}) {
+            if (Files.exists(file)) {
+                throw new FileAlreadyExistsException(file.toString(), null, "a saved graph is already there");
+            }
+        }
+        GraphSnapshot.write(graph, snapshotFile, 0);
+        return new WriteAheadLog(graph, snapshotFile, logFile, 0,
+                DEFAULT_COMMIT_INTERVAL_MILLIS, DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    /** Loads the snapshot into graph, replays the log records written after it and reopens the log. */
+    public static WriteAheadLog recover(AbstractGraph<Node> graph, Path snapshotFile, Path logFile) throws IOException {
+        long sequence = GraphSnapshot.load(snapshotFile, graph);
+        if (Files.exists(logFile)) {
+            sequence = replay(graph, logFile, sequence);
+        }
+        return new WriteAheadLog(graph, snapshotFile, logFile, sequence,
+                DEFAULT_COMMIT_INTERVAL_MILLIS, DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    /** True if logFile holds records, which recovery would have to replay onto the snapshot. */
+    public static boolean hasRecords(Path logFile) throws IOException {
+        return Files.exists(logFile) && Files.size(logFile) > HEADER_SIZE;
+    }
+
+    /** Writes and forces every record appended so far, or waits for the commit already doing so. */
+    public void sync() throws IOException {
+        synchronized (this.commitLock) {
+            ByteArrayOutputStream batch;
+            synchronized (this) {
+                if (this.pending.size() == 0) {
+                    return;
+                }
+                batch = this.pending;
+                this.pending = this.spare;
+                this.spare = batch;
+            }
+            // Appenders fill the other buffer while this batch is written
+            this.writeFully(ByteBuffer.wrap(batch.toByteArray()));
+            this.channel.force(false);
+            this.logBytes += batch.size();
+            batch.reset();
+        }
+    }
+
+    public boolean isCheckpointDue() {
+        synchronized (this.commitLock) {
+            return this.logBytes >= this.checkpointBytes;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the graph, with the same indices as the live one, and empties the
+     * log. Call it only when no mutation is in progress.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (this.commitLock) {
+            this.sync();
+            long last;
+            synchronized (this) {
+                last = this.sequence;
+            }
+            GraphSnapshot.write(this.graph, this.snapshotFile, last);
+            this.channel.truncate(HEADER_SIZE);
+            this.channel.position(HEADER_SIZE);
+            this.channel.force(true);
+            this.logBytes = HEADER_SIZE;
+        }
+    }
+
+    public void close() throws IOException {
+        this.graph.removeGraphListener(this);
+        this.committer.shutdown();
+        this.sync();
+        this.channel.close();
+    }
+
+    // -----------------------------
+    // Recording
+    // -----------------------------
+    public void vertexAdded(int v) {
+        Node node = this.graph.getVertex(v);
+        synchronized (this) {
+            this.begin(ADD_VERTEX);
+            try {
+                this.out.writeByte(node.getKind().ordinal());
+                this.out.writeInt(node.getX());
+                this.out.writeInt(node.getY());
+                writeString(this.out, node.getName());
+                writeString(this.out, node instanceof Movie ? ((Movie) node).getGenre() : "");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            this.end();
+        }
+    }
+
+    public void vertexRemoved(int v) {
+        synchronized (this) {
+            this.begin(REMOVE_VERTEX);
+            this.writeInts(v);
+            this.end();
+        }
+    }
+
+    public void edgeAdded(int u, int v) {
+        EdgeLabel label = this.graph.getLabel(u, v);
+        synchronized (this) {
+            this.begin(ADD_EDGE);
+            this.writeInts(u, v);
+            this.record.write(label.ordinal());
+            this.end();
+        }
+    }
+
+    public void edgeRemoved(int u, int v) {
+        synchronized (this) {
+            this.begin(REMOVE_EDGE);
+            this.writeInts(u, v);
+            this.end();
+        }
+    }
+
+    public void compacted(int[] remap) {
+        synchronized (this) {
+            this.begin(COMPACT);
+            this.end();
+        }
+    }
+
+    public void cleared() {
+        synchronized (this) {
+            this.begin(CLEAR);
+            this.end();
+        }
+    }
+
+    private void begin(byte type) {
+        this.record.reset();
+        this.writeLong(++this.sequence);
+        this.record.write(type);
+    }
+
+    // Frames the record with its length and checksum and queues it for the next commit
+    private void end() {
+        byte[] bytes = this.record.toByteArray();
+        this.crc.reset();
+        this.crc.update(bytes, 0, bytes.length);
+        DataOutputStream frame = new DataOutputStream(this.pending);
+        try {
+            frame.writeInt(bytes.length);
+            frame.writeInt((int) this.crc.getValue());
+            frame.write(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeInts(int... values) {
+        try {
+            for (int value : values) {
+                this.out.writeInt(value);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeLong(long value) {
+        try {
+            this.out.writeLong(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void commitQuietly() {
+        try {
+            this.sync();
+        } catch (IOException e) {
+            System.out.println("Could not write the graph log: " + e.getMessage());
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+    }
+
+    // -----------------------------
+    // Recovery
+    // -----------------------------
+
+    // Applies the records after 'sequence', cuts off a torn tail, and returns the last sequence seen
+    private static long replay(AbstractGraph<Node> graph, Path logFile, long sequence) throws IOException {
+        long start = System.nanoTime();
+        long valid = HEADER_SIZE;
+        long fileSize = Files.size(logFile);
+        int applied = 0;
+        try (InputStream file = Files.newInputStream(logFile);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a graph log: " + logFile);
+            }
+
+            CRC32 crc = new CRC32();
+            byte[] bytes = new byte[256];
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    // A torn length can be anything; one past the end of the file is never allocated
+                    if (length < 9 || length > fileSize - valid - 8) {
+                        break;
+                    }
+                    if (length > bytes.length) {
+                        bytes = new byte[Math.max(length, bytes.length << 1)];
+                    }
+                    in.readFully(bytes, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(bytes, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                ByteBuffer record = ByteBuffer.wrap(bytes, 0, length);
+                long recordSequence = record.getLong();
+                if (recordSequence > sequence) {
+                    apply(graph, record);
+                    sequence = recordSequence;
+                    applied++;
+                }
+                valid += 8 + length;
+            }
+        } catch (EOFException e) {
+            throw new IOException("Not a graph log: " + logFile);
+        }
+
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+            if (channel.size() > valid) {
+                System.out.println("Discarding " + (channel.size() - valid) + " bytes of incomplete log records");
+                channel.truncate(valid);
+                channel.force(true);
+            }
+        }
+        System.out.printf("Replayed %d logged changes in %.2f s%n", applied, (System.nanoTime() - start) / 1_000_000_000.0);
+        return sequence;
+    }
+
+    private static void apply(AbstractGraph<Node> graph, ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case ADD_VERTEX -> {
+                NodeKind kind = NodeKind.of(record.get());
+                int x = record.getInt();
+                int y = record.getInt();
+                String name = readString(record);
+                String genre = readString(record);
+                switch (kind) {
+                    case USER -> graph.addVertex(new User(name, x, y));
+                    case MOVIE -> graph.addVertex(new Movie(name, genre, x, y));
+                    case GENRE -> graph.addVertex(new Genre(name, x, y));
+                    default -> throw new IllegalArgumentException("Unsupported vertex kind in log: " + kind);
+                }
+            }
+            case REMOVE_VERTEX -> graph.removeVertex(graph.getVertex(record.getInt()));
+            case ADD_EDGE -> graph.addEdge(record.getInt(), record.getInt(), EdgeLabel.of(record.get()));
+            case REMOVE_EDGE -> graph.removeEdge(record.getInt(), record.getInt());
+            case COMPACT -> graph.compact();
+            case CLEAR -> graph.clear();
+            default -> throw new IllegalArgumentException("Unknown log record type: " + type);
+        }
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        String s = new String(record.array(), record.arrayOffset() + record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return s;
+    }
+}